@@ -0,0 +1,75 @@
+package com.example.eddc;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sign-up, sign-in and password change against users/{phone}. It only touches the password
+ * leaf, so each call transfers a few hundred bytes however much history a user has. Hashing is
+ * slow on purpose and every method may wait on the network, so call them off the main thread.
+ */
+public class AccountRepository {
+
+    public enum SignInResult {
+        SUCCESS,
+        WRONG_PASSWORD,
+        NO_SUCH_USER
+    }
+
+    private final RealtimeStore store;
+    private final PasswordHasher hasher;
+
+    public AccountRepository(RealtimeStore store, PasswordHasher hasher) {
+        this.store = store;
+        this.hasher = hasher;
+    }
+
+    /**
+     * Creates the account unless the phone number is taken. The existence check up front skips
+     * the hashing cost for taken numbers; the conditional write closes the race with a
+     * concurrent sign-up for the same number.
+     *
+     * @return false when an account already exists for the number
+     */
+    public boolean register(String phone, String password) throws IOException {
+        if (store.get(FirebasePaths.password(phone)) != null) {
+            return false;
+        }
+        Map<String, Object> user = new HashMap<>();
+        user.put(FirebasePaths.PASSWORD, hasher.hash(password));
+        return store.setIfAbsent(FirebasePaths.USERS + "/" + phone, user);
+    }
+
+    /**
+     * Checks the password and, on success, upgrades a plaintext or weaker stored hash to the
+     * current cost.
+     */
+    public SignInResult signIn(String phone, String password) throws IOException {
+        Object stored = store.get(FirebasePaths.password(phone));
+        if (!(stored instanceof String)) {
+            return SignInResult.NO_SUCH_USER;
+        }
+        String storedHash = (String) stored;
+        if (!hasher.verify(password, storedHash)) {
+            return SignInResult.WRONG_PASSWORD;
+        }
+        if (hasher.needsRehash(storedHash)) {
+            try {
+                store.set(FirebasePaths.password(phone), hasher.hash(password));
+            } catch (IOException e) {
+                // The old hash still works; the next sign-in tries again
+            }
+        }
+        return SignInResult.SUCCESS;
+    }
+
+    /** @return false when there is no account for the number */
+    public boolean changePassword(String phone, String newPassword) throws IOException {
+        if (store.get(FirebasePaths.password(phone)) == null) {
+            return false;
+        }
+        store.set(FirebasePaths.password(phone), hasher.hash(newPassword));
+        return true;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.eddc;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Copies and fingerprints assets through NIO channels instead of heap byte[] loops.
+ * Uncompressed assets are read straight from the APK file descriptor; compressed ones fall
+ * back to a channel over the asset stream.
+ */
+public class AssetExtractor {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    // Upper bound per transferTo/transferFrom call; the kernel may move less
+    private static final long TRANSFER_CHUNK = 8L * 1024 * 1024;
+
+    private final AssetManager assets;
+
+    public AssetExtractor(AssetManager assets) {
+        this.assets = assets;
+    }
+
+    /**
+     * Copies the asset to the target file atomically: the bytes go to a temp file that is
+     * synced and then renamed, so a crash mid-copy never leaves a truncated target behind.
+     */
+    public void extract(String assetName, File target) throws IOException {
+        File temp = new File(target.getParentFile(), target.getName() + TEMP_SUFFIX);
+
+        try (FileOutputStream os = new FileOutputStream(temp);
+             FileChannel out = os.getChannel()) {
+            AssetFileDescriptor afd = openUncompressed(assetName);
+            if (afd != null) {
+                try (FileInputStream is = afd.createInputStream();
+                     FileChannel in = is.getChannel()) {
+                    copy(in, afd.getStartOffset(), afd.getLength(), out);
+                } finally {
+                    afd.close();
+                }
+            } else {
+                try (InputStream is = assets.open(assetName);
+                     ReadableByteChannel in = Channels.newChannel(is)) {
+                    copy(in, out);
+                }
+            }
+            out.force(true);
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Failed to move " + temp + " to " + target);
+        }
+    }
+
+    /**
+     * Returns the hex SHA-256 of the asset, memory-mapping it when it is stored uncompressed.
+     */
+    public String sha256(String assetName) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 not available", e);
+        }
+
+        AssetFileDescriptor afd = openUncompressed(assetName);
+        if (afd != null) {
+            try (FileInputStream is = afd.createInputStream();
+                 FileChannel in = is.getChannel()) {
+                MappedByteBuffer mapped = in.map(FileChannel.MapMode.READ_ONLY, afd.getStartOffset(), afd.getLength());
+                digest.update(mapped);
+            } finally {
+                afd.close();
+            }
+        } else {
+            try (InputStream is = assets.open(assetName);
+                 ReadableByteChannel in = Channels.newChannel(is)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+                while (in.read(buffer) != -1) {
+                    buffer.flip();
+                    digest.update(buffer);
+                    buffer.clear();
+                }
+            }
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    // openFd only succeeds for assets stored uncompressed in the APK
+    // (e.g. noCompress += "pt" in the Gradle androidResources block)
+    private AssetFileDescriptor openUncompressed(String assetName) throws IOException {
+        try {
+            return assets.openFd(assetName);
+        } catch (FileNotFoundException e) {
+            // Either compressed or missing; assets.open() reports a missing asset
+            return null;
+        }
+    }
+
+    // Uncompressed assets: a byte range of the APK, moved by the kernel where it can
+    static void copy(FileChannel in, long offset, long length, FileChannel out) throws IOException {
+        long position = 0;
+        while (position < length) {
+            long transferred = in.transferTo(offset + position, Math.min(TRANSFER_CHUNK, length - position), out);
+            if (transferred <= 0) {
+                throw new IOException("Asset transfer stalled at " + position + " of " + length + " bytes");
+            }
+            position += transferred;
+        }
+    }
+
+    // Compressed assets: the stream's length is unknown, so copy until it is exhausted
+    static void copy(ReadableByteChannel in, FileChannel out) throws IOException {
+        long position = 0;
+        long transferred;
+        while ((transferred = out.transferFrom(in, position, TRANSFER_CHUNK)) > 0) {
+            position += transferred;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.eddc;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Command-line check of AssetExtractor's two copy loops on a generated file that spans several
+ * transfer chunks. The file-channel loop copies a byte range out of the middle of the file, as
+ * it does for an asset stored uncompressed inside the APK; the stream loop copies the whole
+ * file, as for a compressed asset. Both go through a temp file that is fsynced and renamed, as
+ * extract() does, and each result must match its source byte for byte, otherwise the exit
+ * status is 1. AssetExtractionBenchmark in benchmarks/ times them against the old 15 KB copy.
+ *
+ * Usage: AssetExtractorCheck [work-dir]
+ */
+public class AssetExtractorCheck {
+
+    // Crosses the 8 MB transfer chunk twice and ends mid-chunk
+    private static final long LENGTH = 20L * 1024 * 1024 + 4099;
+    // Stands in for the APK bytes before and after an uncompressed asset
+    private static final long HEADER = 1021;
+    private static final long TRAILER = 517;
+    private static final int LEGACY_BUFFER = 15 * 1024;
+
+    public static void main(String[] args) throws IOException {
+        File dir = new File(args.length > 0 ? args[0] : System.getProperty("java.io.tmpdir"));
+        File apk = new File(dir, "asset-check.apk");
+        File asset = new File(dir, "asset-check.bin");
+        File target = new File(dir, "asset-check.out");
+        try {
+            generate(apk, HEADER + LENGTH + TRAILER);
+            generate(asset, LENGTH);
+
+            extractFd(apk, HEADER, LENGTH, target);
+            boolean fdOk = sameContent(apk, HEADER, target, LENGTH);
+            System.out.println("file channel range: " + (fdOk ? "ok" : "FAIL: copy differs"));
+
+            extractStream(asset, target);
+            boolean streamOk = sameContent(asset, 0, target, LENGTH);
+            System.out.println("stream: " + (streamOk ? "ok" : "FAIL: copy differs"));
+
+            if (!fdOk || !streamOk) {
+                System.exit(1);
+            }
+        } finally {
+            apk.delete();
+            asset.delete();
+            target.delete();
+        }
+    }
+
+    /** Copies length bytes at offset of source into target with AssetExtractor's file-channel loop. */
+    static void extractFd(File source, long offset, long length, File target) throws IOException {
+        atomically(target, out -> {
+            try (FileInputStream is = new FileInputStream(source);
+                 FileChannel in = is.getChannel()) {
+                AssetExtractor.copy(in, offset, length, out);
+            }
+        });
+    }
+
+    /** Copies source into target with AssetExtractor's stream loop. */
+    static void extractStream(File source, File target) throws IOException {
+        atomically(target, out -> {
+            try (InputStream is = new FileInputStream(source);
+                 ReadableByteChannel in = Channels.newChannel(is)) {
+                AssetExtractor.copy(in, out);
+            }
+        });
+    }
+
+    // Temp file, fsync and rename, as in AssetExtractor.extract()
+    private static void atomically(File target, Copy copy) throws IOException {
+        File temp = new File(target.getParentFile(), target.getName() + ".tmp");
+        try (FileOutputStream os = new FileOutputStream(temp);
+             FileChannel out = os.getChannel()) {
+            copy.into(out);
+            out.force(true);
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Failed to move " + temp + " to " + target);
+        }
+    }
+
+    /** The copy loop ModelRegistry used before AssetExtractor: no temp file, no fsync. */
+    static void legacyCopy(File source, File target) throws IOException {
+        try (InputStream is = new FileInputStream(source);
+             OutputStream os = new FileOutputStream(target)) {
+            byte[] buffer = new byte[LEGACY_BUFFER];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                os.write(buffer, 0, read);
+            }
+            os.flush();
+        }
+    }
+
+    static void generate(File file, long length) throws IOException {
+        Random random = new Random(length);
+        byte[] block = new byte[1024 * 1024];
+        try (OutputStream os = new FileOutputStream(file)) {
+            for (long written = 0; written < length; written += block.length) {
+                random.nextBytes(block);
+                os.write(block, 0, (int) Math.min(block.length, length - written));
+            }
+        }
+    }
+
+    // Whether target holds exactly the length bytes of source starting at offset
+    private static boolean sameContent(File source, long offset, File target, long length) throws IOException {
+        if (target.length() != length) {
+            return false;
+        }
+        try (FileInputStream a = new FileInputStream(source); InputStream b = new FileInputStream(target)) {
+            a.getChannel().position(offset);
+            byte[] x = new byte[1024 * 1024];
+            byte[] y = new byte[x.length];
+            for (long left = length; left > 0; ) {
+                int chunk = (int) Math.min(x.length, left);
+                if (a.readNBytes(x, 0, chunk) != chunk || b.readNBytes(y, 0, chunk) != chunk
+                        || !Arrays.equals(x, 0, chunk, y, 0, chunk)) {
+                    return false;
+                }
+                left -= chunk;
+            }
+        }
+        return true;
+    }
+
+    private interface Copy {
+        void into(FileChannel out) throws IOException;
+    }
+}
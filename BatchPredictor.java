@@ -0,0 +1,277 @@
+package com.example.eddc;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the classifier on several images per forward pass.
+ * Each image is preprocessed on the thread that submits it, so concurrent submitters (the
+ * InferenceScheduler compute pool) preprocess in parallel. A single worker packs the ready
+ * tensors into one [N, 3, size, size] tensor and runs the forward pass while the next images
+ * are being preprocessed; the logits are split back per image. Single submissions that arrive
+ * within the batching window are coalesced automatically.
+ */
+public class BatchPredictor {
+
+    private static final String TAG = "BatchPredictor";
+
+    private final ClassifierBackend backend;
+    private final int tensorLength;
+    private final int maxBatchSize;
+    private final long batchWindowNanos;
+
+    // One direct buffer sized for the largest batch; smaller batches use its prefix
+    private final FloatBuffer batchBuffer;
+
+    // Per-thread preprocessing state, so submitters never wait on each other
+    private final ThreadLocal<TensorPreprocessor> preprocessors;
+    private final ThreadLocal<int[]> pixelBuffers = ThreadLocal.withInitial(() -> new int[0]);
+
+    // Preprocessed tensors waiting for a batch are recycled once copied into batchBuffer
+    private final BlockingQueue<float[]> freeTensors;
+
+    private final BlockingQueue<PendingRequest> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+    // Guards running so no request can be queued after shutdown() has drained the queue
+    private final Object lifecycleLock = new Object();
+    private volatile boolean running = true;
+
+    public BatchPredictor(ClassifierBackend backend, int inputSize, int maxBatchSize, long batchWindowMs) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        this.backend = backend;
+        this.tensorLength = 3 * inputSize * inputSize;
+        this.maxBatchSize = maxBatchSize;
+        this.batchWindowNanos = TimeUnit.MILLISECONDS.toNanos(batchWindowMs);
+        this.preprocessors = ThreadLocal.withInitial(() -> new TensorPreprocessor(inputSize));
+        this.freeTensors = new ArrayBlockingQueue<>(2 * maxBatchSize);
+        this.batchBuffer = ByteBuffer.allocateDirect(maxBatchSize * tensorLength * 4)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+
+        worker.execute(this::drainQueue);
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Preprocesses one image on the calling thread, queues it and returns its raw logits
+     * once the batch it joined has run.
+     */
+    public CompletableFuture<float[]> submit(Bitmap bitmap) {
+        CompletableFuture<float[]> future = new CompletableFuture<>();
+        if (!running) {
+            future.completeExceptionally(new CancellationException("BatchPredictor is shut down"));
+            return future;
+        }
+
+        float[] tensor;
+        try {
+            tensor = preprocess(bitmap);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        synchronized (lifecycleLock) {
+            if (running) {
+                queue.add(new PendingRequest(tensor, future));
+                return future;
+            }
+        }
+        future.completeExceptionally(new CancellationException("BatchPredictor is shut down"));
+        return future;
+    }
+
+    /**
+     * Runs the given images in as few forward passes as maxBatchSize allows and returns
+     * the raw logits of each image, in input order. Preprocessing and the forward passes
+     * run on the calling thread.
+     */
+    public List<float[]> predictBatch(List<Bitmap> bitmaps) {
+        List<float[]> results = new ArrayList<>(bitmaps.size());
+        List<float[]> tensors = new ArrayList<>(maxBatchSize);
+        for (int start = 0; start < bitmaps.size(); start += maxBatchSize) {
+            int end = Math.min(start + maxBatchSize, bitmaps.size());
+            for (Bitmap bitmap : bitmaps.subList(start, end)) {
+                tensors.add(preprocess(bitmap));
+            }
+            results.addAll(Arrays.asList(runBatch(tensors)));
+            for (float[] tensor : tensors) {
+                freeTensors.offer(tensor);
+            }
+            tensors.clear();
+        }
+        return results;
+    }
+
+    public void shutdown() {
+        synchronized (lifecycleLock) {
+            running = false;
+        }
+        worker.shutdownNow();
+
+        PendingRequest pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.completeExceptionally(new CancellationException("BatchPredictor is shut down"));
+        }
+    }
+
+    private void drainQueue() {
+        List<PendingRequest> batch = new ArrayList<>(maxBatchSize);
+        List<float[]> tensors = new ArrayList<>(maxBatchSize);
+
+        while (running) {
+            try {
+                batch.add(queue.take());
+
+                // Wait up to the batching window for more requests to join
+                long deadline = System.nanoTime() + batchWindowNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingRequest next = remaining > 0
+                            ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                            : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                for (PendingRequest pending : batch) {
+                    pending.future.completeExceptionally(new CancellationException("BatchPredictor is shut down"));
+                }
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            // Requests cancelled while queued (e.g. superseded by a newer image) are dropped
+            batch.removeIf(pending -> {
+                if (pending.future.isCancelled()) {
+                    freeTensors.offer(pending.tensor);
+                    return true;
+                }
+                return false;
+            });
+            if (batch.isEmpty()) {
+                continue;
+            }
+            for (PendingRequest pending : batch) {
+                tensors.add(pending.tensor);
+            }
+
+            try {
+                float[][] scores = runBatch(tensors);
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).future.complete(scores[i]);
+                }
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Batch of " + batch.size() + " failed", e);
+                for (PendingRequest pending : batch) {
+                    pending.future.completeExceptionally(e);
+                }
+            }
+
+            for (float[] tensor : tensors) {
+                freeTensors.offer(tensor);
+            }
+            batch.clear();
+            tensors.clear();
+        }
+    }
+
+    // Runs on the submitting thread; the tensor is taken from the free list when one is spare
+    private float[] preprocess(Bitmap bitmap) {
+        InferenceTracer tracer = InferenceTracer.getInstance();
+        long span = tracer.begin();
+
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int[] pixels = pixelBuffers.get();
+        if (pixels.length < width * height) {
+            pixels = new int[width * height];
+            pixelBuffers.set(pixels);
+        }
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+
+        float[] tensor = freeTensors.poll();
+        if (tensor == null) {
+            tensor = new float[tensorLength];
+        }
+        preprocessors.get().preprocess(pixels, width, height, FloatBuffer.wrap(tensor), 0);
+
+        tracer.end(InferenceScheduler.Stage.PREPROCESS, span);
+        return tensor;
+    }
+
+    // Only one forward pass runs at a time: the backends reuse per-instance scratch buffers
+    private synchronized float[][] runBatch(List<float[]> tensors) {
+        int batchSize = tensors.size();
+        FloatBuffer packed = batchBuffer.duplicate();
+        for (float[] tensor : tensors) {
+            packed.put(tensor);
+        }
+
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            logTensorStats(batchSize * tensorLength);
+        }
+
+        InferenceTracer tracer = InferenceTracer.getInstance();
+        long span = tracer.begin();
+        float[] logits = backend.forward(batchBuffer, batchSize);
+        tracer.end(InferenceScheduler.Stage.FORWARD, span);
+
+        int numClasses = logits.length / batchSize;
+        float[][] scores = new float[batchSize][];
+        for (int i = 0; i < batchSize; i++) {
+            scores[i] = Arrays.copyOfRange(logits, i * numClasses, (i + 1) * numClasses);
+        }
+        return scores;
+    }
+
+    private void logTensorStats(int length) {
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        float sum = 0;
+
+        for (int i = 0; i < length; i++) {
+            float value = batchBuffer.get(i);
+            if (value < min) min = value;
+            if (value > max) max = value;
+            sum += value;
+        }
+
+        Log.d(TAG, String.format(Locale.US,
+                "Input Tensor stats - Min: %.6f, Max: %.6f, Mean: %.6f",
+                min, max, sum / length));
+    }
+
+    private static class PendingRequest {
+        final float[] tensor;
+        final CompletableFuture<float[]> future;
+
+        PendingRequest(float[] tensor, CompletableFuture<float[]> future) {
+            this.tensor = tensor;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,552 @@
+package com.example.eddc;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Command-line tool that classifies every image under a directory tree, e.g. the photos from a
+ * screening camp, with the app's preprocessing and class table. Files are visited in sorted path
+ * order and flow through a pool of decode/preprocess threads into one inference thread. At most
+ * IN_FLIGHT_PER_THREAD images per decode thread are held at a time, so memory stays flat however
+ * large the tree is. One row per image, with the full probability vector, is appended in visiting
+ * order as CSV or, for any other extension, JSON lines. Rerunning with the same output file
+ * resumes after its last complete row.
+ *
+ * The model file is either export_weights.py output or a QuantizationCalibrator INT8 file.
+ *
+ * Usage: BulkScreener model-file image-dir output-file [decode-threads]
+ */
+public class BulkScreener {
+
+    private static final int INPUT_SIZE = ModelRegistry.INPUT_SIZE;
+    private static final int IN_FLIGHT_PER_THREAD = 4;
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private static final InferenceScheduler.Stage[] REPORTED_STAGES = {
+            InferenceScheduler.Stage.DECODE,
+            InferenceScheduler.Stage.PREPROCESS,
+            InferenceScheduler.Stage.FORWARD
+    };
+
+    private final ClassifierBackend backend;
+    private final Writer out;
+    private final boolean csv;
+    private final InferenceTracer tracer = InferenceTracer.getInstance();
+
+    private final ExecutorService decodePool;
+    private final ThreadLocal<Decoder> decoders = ThreadLocal.withInitial(Decoder::new);
+    private final BlockingQueue<Item> inferQueue = new LinkedBlockingQueue<>();
+    private final Semaphore inFlight;
+    private final Item endOfInput = new Item(-1, null);
+
+    // Visiting order of the next file; only the walker touches it
+    private long submitted;
+    private String resumeAfter;
+    private int skippedDirectories;
+
+    // Results wait here until every earlier file has been written
+    private final Map<Long, Item> finished = new TreeMap<>();
+    private long nextToWrite;
+    private int classified;
+    private int failed;
+    private IOException writeError;
+    private final long startNanos = System.nanoTime();
+    private long lastReportNanos = startNanos;
+
+    /** One file on its way through the pipeline. */
+    private static class Item {
+        final long sequence;
+        final String path;
+        float[] tensor;
+        float[] probabilities;
+        String error;
+
+        Item(long sequence, String path) {
+            this.sequence = sequence;
+            this.path = path;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: BulkScreener <model-file> <image-dir> <output-file> [decode-threads]");
+            System.exit(2);
+        }
+        File modelFile = new File(args[0]);
+        Path root = Paths.get(args[1]);
+        File outputFile = new File(args[2]);
+        int decodeThreads = args.length > 3 ? Integer.parseInt(args[3])
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        if (!Files.isDirectory(root)) {
+            System.err.println("Not a directory: " + root);
+            System.exit(2);
+        }
+
+        ClassifierBackend backend = loadModel(modelFile);
+        boolean csv = outputFile.getName().toLowerCase(Locale.ROOT).endsWith(".csv");
+        String resumeAfter = prepareForResume(outputFile, csv);
+        if (resumeAfter != null) {
+            System.out.println("Resuming after " + resumeAfter);
+        }
+
+        boolean writeHeader = csv && outputFile.length() == 0;
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(outputFile, true), StandardCharsets.UTF_8))) {
+            if (writeHeader) {
+                out.write(csvHeader());
+            }
+            BulkScreener screener = new BulkScreener(backend, out, csv, decodeThreads);
+            screener.resumeAfter = resumeAfter;
+            if (!screener.run(root)) {
+                System.exit(1);
+            }
+        }
+    }
+
+    BulkScreener(ClassifierBackend backend, Writer out, boolean csv, int decodeThreads) {
+        this.backend = backend;
+        this.out = out;
+        this.csv = csv;
+        this.inFlight = new Semaphore(decodeThreads * IN_FLIGHT_PER_THREAD);
+
+        AtomicInteger counter = new AtomicInteger();
+        this.decodePool = Executors.newFixedThreadPool(decodeThreads, runnable -> {
+            Thread thread = new Thread(runnable, "bulk-decode-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        tracer.setEnabled(true);
+    }
+
+    /** Classifies every image under root and prints a summary; false when the output could not be written. */
+    boolean run(Path root) throws IOException, InterruptedException {
+        Thread inference = new Thread(this::inferLoop, "bulk-inference");
+        inference.start();
+
+        try {
+            walk(root, "");
+        } finally {
+            // Also on failure, or the inference thread waits for input forever
+            decodePool.shutdown();
+            decodePool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            inferQueue.add(endOfInput);
+            inference.join();
+        }
+
+        synchronized (this) {
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+            System.out.println(String.format(Locale.US,
+                    "%d images classified, %d unreadable in %.1f s (%.1f images/s)",
+                    classified, failed, seconds, (classified + failed) / seconds));
+            if (skippedDirectories > 0) {
+                System.out.println("Unreadable directories skipped: " + skippedDirectories);
+            }
+            for (InferenceScheduler.Stage stage : REPORTED_STAGES) {
+                LatencyHistogram.Snapshot s = tracer.snapshot(stage);
+                System.out.println(String.format(Locale.US, "%-10s mean %.1f ms, p50 %.1f ms, p99 %.1f ms",
+                        stage, s.getMeanMillis(), s.getQuantileMillis(0.50), s.getQuantileMillis(0.99)));
+            }
+            if (writeError != null) {
+                System.err.println("Failed to write results: " + writeError.getMessage());
+                return false;
+            }
+            return true;
+        }
+    }
+
+    // Depth-first with each directory sorted by name, so the order is the same on every run
+    private void walk(Path dir, String prefix) throws IOException, InterruptedException {
+        List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path entry : stream) {
+                entries.add(entry);
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            // One unreadable folder should not stop the rest of the run
+            System.err.println("Skipping unreadable directory (" + e + ")");
+            skippedDirectories++;
+            return;
+        }
+        entries.sort(Comparator.comparing(entry -> entry.getFileName().toString()));
+
+        for (Path entry : entries) {
+            String path = prefix + entry.getFileName();
+            if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                // Skip directories that were finished before the interruption
+                if (resumeAfter == null || resumeAfter.startsWith(path + "/") || comparePaths(path, resumeAfter) > 0) {
+                    walk(entry, path + "/");
+                }
+            } else if (QuantizationCalibrator.isImage(entry.toFile())
+                    && (resumeAfter == null || comparePaths(path, resumeAfter) > 0)) {
+                resumeAfter = null;
+                submit(path, entry.toFile());
+            }
+        }
+    }
+
+    // The walk's order: path components compared one by one
+    static int comparePaths(String a, String b) {
+        String[] x = a.split("/", -1);
+        String[] y = b.split("/", -1);
+        for (int i = 0; i < Math.min(x.length, y.length); i++) {
+            int c = x[i].compareTo(y[i]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(x.length, y.length);
+    }
+
+    private void submit(String path, File file) throws InterruptedException {
+        // Blocks while the pipeline is full; the writer releases a permit per row
+        inFlight.acquire();
+        Item item = new Item(submitted++, path);
+        decodePool.execute(() -> {
+            try {
+                item.tensor = decoders.get().load(file);
+            } catch (IOException | RuntimeException e) {
+                item.error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            } catch (Throwable e) {
+                // Even an Error must produce a row, or every later row would be held back
+                // and the walker would block on inFlight forever
+                item.error = "Decode failed: " + e;
+            }
+            if (item.error != null) {
+                finish(item);
+            } else {
+                inferQueue.add(item);
+            }
+        });
+    }
+
+    private void inferLoop() {
+        try {
+            Item item;
+            while ((item = inferQueue.take()) != endOfInput) {
+                try {
+                    long span = tracer.begin();
+                    float[] logits = backend.forward(FloatBuffer.wrap(item.tensor), 1);
+                    tracer.end(InferenceScheduler.Stage.FORWARD, span);
+                    item.probabilities = ClassScores.softmax(logits);
+                } catch (Throwable e) {
+                    item.error = "Inference failed: " + e; // Same reasoning as in submit()
+                }
+                item.tensor = null;
+                finish(item);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void finish(Item item) {
+        finished.put(item.sequence, item);
+        Item next;
+        while ((next = finished.remove(nextToWrite)) != null) {
+            if (next.error != null) {
+                failed++;
+            } else {
+                classified++;
+            }
+            if (writeError == null) {
+                try {
+                    out.write(csv ? csvRow(next) : jsonRow(next));
+                } catch (IOException e) {
+                    writeError = e;
+                }
+            }
+            nextToWrite++;
+            inFlight.release();
+        }
+        try {
+            out.flush();
+        } catch (IOException e) {
+            writeError = e;
+        }
+
+        long now = System.nanoTime();
+        if (now - lastReportNanos >= PROGRESS_INTERVAL_NANOS) {
+            lastReportNanos = now;
+            System.out.println(String.format(Locale.US, "%d images, %.1f images/s",
+                    classified + failed, (classified + failed) / ((now - startNanos) / 1e9)));
+        }
+    }
+
+    /** Per-thread decoder that reuses its pixel buffer and preprocessor tables. */
+    private class Decoder {
+        private final TensorPreprocessor preprocessor = new TensorPreprocessor(INPUT_SIZE);
+        private int[] pixels = new int[0];
+
+        float[] load(File file) throws IOException {
+            long span = tracer.begin();
+            BufferedImage image = read(file);
+            int width = image.getWidth();
+            int height = image.getHeight();
+            if (pixels.length < width * height) {
+                pixels = new int[width * height];
+            }
+            image.getRGB(0, 0, width, height, pixels, 0, width);
+            tracer.end(InferenceScheduler.Stage.DECODE, span);
+
+            span = tracer.begin();
+            float[] tensor = new float[preprocessor.getTensorLength()];
+            preprocessor.preprocess(pixels, width, height, FloatBuffer.wrap(tensor), 0);
+            tracer.end(InferenceScheduler.Stage.PREPROCESS, span);
+            return tensor;
+        }
+
+        // Subsampled while decoding like ImageIngestor, so a 12 MP photo never exists at full size
+        private BufferedImage read(File file) throws IOException {
+            try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+                Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+                if (readers == null || !readers.hasNext()) {
+                    throw new IOException("Unsupported image format");
+                }
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(in, true, true);
+                    int sampleSize = sampleSize(reader.getWidth(0), reader.getHeight(0));
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    param.setSourceSubsampling(sampleSize, sampleSize, 0, 0);
+                    return reader.read(0, param);
+                } finally {
+                    reader.dispose();
+                }
+            }
+        }
+    }
+
+    // Same rule as ImageIngestor.calculateSampleSize: largest power of two that keeps the
+    // shorter side at or above the model input size
+    private static int sampleSize(int width, int height) {
+        int shortSide = Math.min(width, height);
+        int sampleSize = 1;
+        while (shortSide / (sampleSize * 2) >= INPUT_SIZE) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    // Both formats start with a little-endian magic number
+    private static ClassifierBackend loadModel(File modelFile) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(modelFile))) {
+            in.mark(4);
+            int magic = 0;
+            for (int i = 0; i < 4; i++) {
+                magic |= (in.read() & 0xFF) << (8 * i);
+            }
+            in.reset();
+            if (magic == QuantizedCnnBackend.MAGIC) {
+                return QuantizedCnnBackend.load(in);
+            }
+            return JavaCnnBackend.load(in, INPUT_SIZE);
+        }
+    }
+
+    /**
+     * Drops a partly written last row and returns the path of the last complete one, or null
+     * when there is nothing to resume from.
+     *
+     * @throws IOException when the last row was not written by this tool
+     */
+    static String prepareForResume(File outputFile, boolean csv) throws IOException {
+        if (!outputFile.exists()) {
+            return null;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(outputFile, "rw")) {
+            long end = lastNewline(file, file.length()) + 1;
+            file.setLength(end);
+            if (end == 0) {
+                return null;
+            }
+            long start = lastNewline(file, end - 1) + 1;
+            byte[] bytes = new byte[(int) (end - 1 - start)];
+            file.seek(start);
+            file.readFully(bytes);
+            String line = new String(bytes, StandardCharsets.UTF_8);
+            if (csv && line.startsWith("path,")) {
+                return null; // Header only
+            }
+            String path = csv ? parseCsvField(line) : parseJsonPath(line);
+            if (path == null) {
+                throw new IOException("Cannot resume, unrecognized last row in " + outputFile);
+            }
+            return path;
+        }
+    }
+
+    // Offset of the last '\n' before limit, or -1
+    private static long lastNewline(RandomAccessFile file, long limit) throws IOException {
+        byte[] chunk = new byte[8192];
+        long position = limit;
+        while (position > 0) {
+            int length = (int) Math.min(chunk.length, position);
+            position -= length;
+            file.seek(position);
+            file.readFully(chunk, 0, length);
+            for (int i = length - 1; i >= 0; i--) {
+                if (chunk[i] == '\n') {
+                    return position + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static String csvHeader() {
+        StringBuilder sb = new StringBuilder("path,prediction,confidence");
+        for (String name : ModelRegistry.CLASS_NAMES) {
+            sb.append(',').append(name);
+        }
+        return sb.append(",error\n").toString();
+    }
+
+    private static String csvRow(Item item) {
+        StringBuilder sb = new StringBuilder();
+        appendCsvField(sb, item.path);
+        if (item.probabilities != null) {
+            int best = ClassScores.argMax(item.probabilities, ModelRegistry.CLASS_NAMES.length);
+            sb.append(',').append(ModelRegistry.CLASS_NAMES[best]);
+            sb.append(',').append(String.format(Locale.US, "%.6f", item.probabilities[best]));
+            for (int i = 0; i < ModelRegistry.CLASS_NAMES.length; i++) {
+                sb.append(',').append(String.format(Locale.US, "%.6f", item.probabilities[i]));
+            }
+            sb.append(',');
+        } else {
+            for (int i = 0; i < ModelRegistry.CLASS_NAMES.length + 2; i++) {
+                sb.append(',');
+            }
+            sb.append(',');
+            appendCsvField(sb, item.error);
+        }
+        return sb.append('\n').toString();
+    }
+
+    private static String jsonRow(Item item) {
+        StringBuilder sb = new StringBuilder("{\"path\":");
+        appendJsonString(sb, item.path);
+        if (item.probabilities != null) {
+            int best = ClassScores.argMax(item.probabilities, ModelRegistry.CLASS_NAMES.length);
+            sb.append(",\"prediction\":");
+            appendJsonString(sb, ModelRegistry.CLASS_NAMES[best]);
+            sb.append(",\"confidence\":").append(String.format(Locale.US, "%.6f", item.probabilities[best]));
+            sb.append(",\"probabilities\":[");
+            for (int i = 0; i < ModelRegistry.CLASS_NAMES.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(String.format(Locale.US, "%.6f", item.probabilities[i]));
+            }
+            sb.append(']');
+        } else {
+            sb.append(",\"error\":");
+            appendJsonString(sb, item.error);
+        }
+        return sb.append("}\n").toString();
+    }
+
+    // Paths are always quoted, so the resume parser only has to handle quoted fields
+    private static void appendCsvField(StringBuilder sb, String value) {
+        sb.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private static String parseCsvField(String line) {
+        if (!line.startsWith("\"")) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    sb.append('"');
+                    i++;
+                } else {
+                    return sb.toString();
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        return null; // Unterminated
+    }
+
+    private static void appendJsonString(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format(Locale.US, "\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    // Reads the "path" string that jsonRow writes first on every line
+    private static String parseJsonPath(String line) {
+        String prefix = "{\"path\":\"";
+        if (!line.startsWith(prefix)) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = prefix.length(); i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c == '\\' && i + 1 < line.length()) {
+                char escaped = line.charAt(++i);
+                if (escaped == 'u' && i + 4 < line.length()) {
+                    sb.append((char) Integer.parseInt(line.substring(i + 1, i + 5), 16));
+                    i += 4;
+                } else {
+                    sb.append(escaped);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        return null; // Unterminated
+    }
+}
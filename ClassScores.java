@@ -0,0 +1,52 @@
+package com.example.eddc;
+
+/**
+ * Turns the model's raw logits into class probabilities and picks the top class.
+ * Shared by the photo flow, the live pipeline and the command-line tools so they all
+ * score the same way. Plain Java so it can run outside Android.
+ */
+public final class ClassScores {
+
+    private ClassScores() {
+    }
+
+    /** Returns a new array holding the softmax of the logits. */
+    public static float[] softmax(float[] logits) {
+        return softmax(logits, new float[logits.length]);
+    }
+
+    /**
+     * Writes the softmax of the first min(logits.length, out.length) logits into out and
+     * returns it. Subtracts the maximum first for numerical stability.
+     */
+    public static float[] softmax(float[] logits, float[] out) {
+        int n = Math.min(logits.length, out.length);
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            if (logits[i] > max) max = logits[i];
+        }
+        float sum = 0f;
+        for (int i = 0; i < n; i++) {
+            out[i] = (float) Math.exp(logits[i] - max);
+            sum += out[i];
+        }
+        for (int i = 0; i < n; i++) {
+            out[i] /= sum;
+        }
+        return out;
+    }
+
+    /** Index of the largest of the first limit values; the first one wins ties. */
+    public static int argMax(float[] values, int limit) {
+        int n = Math.min(values.length, limit);
+        int best = 0;
+        for (int i = 1; i < n; i++) {
+            if (values[i] > values[best]) best = i;
+        }
+        return best;
+    }
+
+    public static int argMax(float[] values) {
+        return argMax(values, values.length);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.eddc;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Runs the eye disease classifier on preprocessed input.
+ * Implementations: TorchScriptBackend (PyTorch Android) and JavaCnnBackend (pure Java).
+ */
+public interface ClassifierBackend {
+
+    /**
+     * Runs batchSize images stored back to back as normalized NCHW floats, starting at
+     * absolute index 0 of input, and returns batchSize * numClasses raw logits.
+     */
+    float[] forward(FloatBuffer input, int batchSize);
+}
@@ -0,0 +1,225 @@
+package com.example.eddc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Command-line load harness for the account and history data flows. Simulated users
+ * register, sign in, save detections one at a time (as an online device syncs them) and page
+ * their whole history back (as a fresh install does), through the same AccountRepository and
+ * RemoteHistory code the app runs, against an in-process LocalJsonTreeStore. It reports p50/p99
+ * latency and the JSON bytes sent and received per operation, a network-free baseline for
+ * changes to the database layout or the flows.
+ *
+ * Needs the org.json classes on the classpath for DetectionRecord.
+ *
+ * Usage: DataLoadHarness [users] [threads] [detections-per-user] [hash-iterations] [seed]
+ */
+public class DataLoadHarness {
+
+    // Same page size as HistorySyncEngine's pull
+    private static final int HISTORY_PAGE = 50;
+
+    enum Operation {
+        REGISTER,
+        SIGN_IN,
+        SAVE_DETECTION,
+        PAGE_HISTORY
+    }
+
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int detections = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        // The device-calibrated cost would make hashing dominate every sign-in and sign-up number
+        int iterations = args.length > 3 ? Integer.parseInt(args[3]) : PasswordHasher.MIN_ITERATIONS;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42;
+
+        LocalJsonTreeStore tree = new LocalJsonTreeStore();
+        PasswordHasher hasher = new PasswordHasher(iterations);
+        Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+
+        System.out.println(String.format(Locale.US,
+                "%d users, %d threads, %d detections each, %d hash iterations",
+                users, threads, detections, iterations));
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>(users);
+        long start = System.nanoTime();
+        for (int i = 0; i < users; i++) {
+            // 10-digit numbers, like the phone keys under users/
+            String phone = String.format(Locale.US, "9%09d", i);
+            Random random = new Random(seed + i);
+            futures.add(pool.submit(() -> {
+                simulateUser(tree.connect(), hasher, phone, detections, random, stats);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        long operations = 0;
+        System.out.println(String.format(Locale.US, "%-15s %8s %9s %9s %11s %11s",
+                "operation", "count", "p50 ms", "p99 ms", "sent B/op", "recv B/op"));
+        for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+            OperationStats s = entry.getValue();
+            operations += s.count();
+            System.out.println(String.format(Locale.US, "%-15s %8d %9.3f %9.3f %11.1f %11.1f",
+                    entry.getKey(), s.count(), s.percentileMillis(0.50), s.percentileMillis(0.99),
+                    s.meanBytesSent(), s.meanBytesReceived()));
+        }
+        System.out.println(String.format(Locale.US, "%d operations in %.2f s (%.0f ops/s), tree %d bytes",
+                operations, seconds, operations / seconds, tree.toJson().length()));
+    }
+
+    private static void simulateUser(LocalJsonTreeStore connection, PasswordHasher hasher, String phone,
+                                     int detections, Random random, Map<Operation, OperationStats> stats)
+            throws IOException {
+        AccountRepository accounts = new AccountRepository(connection, hasher);
+        RemoteHistory history = new RemoteHistory(connection);
+        String password = "pass" + random.nextInt(1_000_000) + "word";
+
+        Measurement measurement = new Measurement(connection);
+        if (!accounts.register(phone, password)) {
+            throw new IllegalStateException("Duplicate user " + phone);
+        }
+        measurement.finish(stats.get(Operation.REGISTER));
+
+        measurement = new Measurement(connection);
+        if (accounts.signIn(phone, password) != AccountRepository.SignInResult.SUCCESS) {
+            throw new IllegalStateException("Sign-in failed for " + phone);
+        }
+        measurement.finish(stats.get(Operation.SIGN_IN));
+
+        for (int i = 0; i < detections; i++) {
+            DetectionRecord record = randomRecord(history.newId(phone), phone, random);
+            measurement = new Measurement(connection);
+            history.push(phone, Collections.singletonList(record));
+            measurement.finish(stats.get(Operation.SAVE_DETECTION));
+        }
+
+        int pulled = 0;
+        String cursor = null;
+        while (true) {
+            measurement = new Measurement(connection);
+            RemoteHistory.Page page = history.pullAfter(phone, cursor, HISTORY_PAGE);
+            measurement.finish(stats.get(Operation.PAGE_HISTORY));
+            pulled += page.records.size();
+            if (page.size < HISTORY_PAGE) {
+                break;
+            }
+            cursor = page.lastKey;
+        }
+        if (pulled != detections) {
+            throw new IllegalStateException("Read " + pulled + " of " + detections + " records for " + phone);
+        }
+    }
+
+    // Shaped like the records login.saveDetection writes, renditions included
+    private static DetectionRecord randomRecord(String id, String phone, Random random) {
+        float[] probabilities = new float[ModelRegistry.CLASS_NAMES.length];
+        float sum = 0;
+        for (int i = 0; i < probabilities.length; i++) {
+            probabilities[i] = (float) Math.pow(random.nextFloat(), 4);
+            sum += probabilities[i];
+        }
+        int best = 0;
+        for (int i = 0; i < probabilities.length; i++) {
+            probabilities[i] /= sum;
+            if (probabilities[i] > probabilities[best]) best = i;
+        }
+
+        DetectionRecord record = new DetectionRecord();
+        record.id = id;
+        record.classIndex = best;
+        record.confidenceBp = DetectionRecord.toConfidenceBp(probabilities[best] * 100);
+        record.timestampMillis = System.currentTimeMillis();
+        record.setProbabilities(probabilities);
+
+        String imagePath = "detections/" + phone + "/" + id;
+        record.imageRef = imagePath + ".jpg";
+        record.imageBytes = 150_000 + random.nextInt(100_000);
+        record.imageWidth = 1024;
+        record.imageHeight = 768;
+        record.previewRef = imagePath + "_preview.webp";
+        record.previewBytes = 20_000 + random.nextInt(10_000);
+        record.thumbRef = imagePath + "_thumb.webp";
+        record.thumbBytes = 3_000 + random.nextInt(2_000);
+        return record;
+    }
+
+    /** Latency and traffic of one operation on one connection. */
+    private static class Measurement {
+        private final LocalJsonTreeStore connection;
+        private final long sentBefore;
+        private final long receivedBefore;
+        private final long start;
+
+        Measurement(LocalJsonTreeStore connection) {
+            this.connection = connection;
+            this.sentBefore = connection.getBytesSent();
+            this.receivedBefore = connection.getBytesReceived();
+            this.start = System.nanoTime();
+        }
+
+        void finish(OperationStats stats) {
+            long nanos = System.nanoTime() - start;
+            stats.add(nanos, connection.getBytesSent() - sentBefore,
+                    connection.getBytesReceived() - receivedBefore);
+        }
+    }
+
+    private static class OperationStats {
+        private long[] latencies = new long[1024];
+        private int count;
+        private long bytesSent;
+        private long bytesReceived;
+
+        synchronized void add(long nanos, long sent, long received) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            bytesSent += sent;
+            bytesReceived += received;
+        }
+
+        synchronized int count() {
+            return count;
+        }
+
+        synchronized double percentileMillis(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(quantile * count) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+
+        synchronized double meanBytesSent() {
+            return count == 0 ? 0 : (double) bytesSent / count;
+        }
+
+        synchronized double meanBytesReceived() {
+            return count == 0 ? 0 : (double) bytesReceived / count;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.eddc;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * One entry of history/{id}, as stored in the realtime database and in LocalHistoryStore.
+ *
+ * Schema 2 stores the class as an index into ModelRegistry.CLASS_NAMES, the confidence as an
+ * integer in hundredths of a percent and the time as epoch milliseconds, so numeric
+ * orderByChild("timestamp") sorts the same in every locale. Records without a "v" field are
+ * schema 1 (disease name, float confidence, locale-formatted timestamp string) and are
+ * converted on read. Image fields are null for records without an image; imageBase64 is only
+ * set on schema 1 records that carry the image inline. The optional "probs" field holds the full
+ * distribution as Base64 of the 15 ProbabilityCodec bytes.
+ */
+public class DetectionRecord {
+
+    public static final int SCHEMA_VERSION = 2;
+
+    /** Fixed-point scale of confidenceBp: 10000 means 100%. */
+    public static final int CONFIDENCE_SCALE = 100;
+
+    // Schema 1 timestamps were written with Locale.getDefault() in the device's time zone
+    private static final String LEGACY_TIMESTAMP_PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+    String id;
+    int classIndex = -1;
+    int confidenceBp;
+    long timestampMillis;
+    String imageRef;
+    int imageBytes;
+    int imageWidth;
+    int imageHeight;
+    String previewRef;
+    int previewBytes;
+    String thumbRef;
+    int thumbBytes;
+    String imageBase64;
+
+    // Full distribution as ProbabilityCodec bytes, one per class; null on older records
+    byte[] probabilities;
+
+    // Schema 1 disease name that is not in CLASS_NAMES; kept so the record is not lost
+    String unknownDisease;
+
+    /** Field map written to the database node, always in the current schema. */
+    public Map<String, Object> toMap() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("v", SCHEMA_VERSION);
+        values.put("classIndex", classIndex);
+        values.put("confidenceBp", confidenceBp);
+        values.put("timestamp", timestampMillis);
+        if (unknownDisease != null) {
+            values.put("disease", unknownDisease);
+        }
+        if (imageRef != null) {
+            values.put("imageRef", imageRef);
+            values.put("imageBytes", imageBytes);
+            values.put("imageWidth", imageWidth);
+            values.put("imageHeight", imageHeight);
+        }
+        if (previewRef != null) {
+            values.put("previewRef", previewRef);
+            values.put("previewBytes", previewBytes);
+        }
+        if (thumbRef != null) {
+            values.put("thumbRef", thumbRef);
+            values.put("thumbBytes", thumbBytes);
+        }
+        if (imageBase64 != null) {
+            values.put("image", imageBase64);
+        }
+        if (probabilities != null) {
+            values.put("probs", Base64.getEncoder().encodeToString(probabilities));
+        }
+        return values;
+    }
+
+    /**
+     * Reads a record of any schema from a database node's value map in one pass over its
+     * entries. Numbers may arrive as any boxed type.
+     *
+     * @return the record, or null when it names no class
+     */
+    public static DetectionRecord fromMap(String id, Map<String, ?> values) {
+        DetectionRecord record = new DetectionRecord();
+        record.id = id;
+
+        int version = 1;
+        String legacyDisease = null;
+        float legacyConfidence = 0f;
+        String legacyTimestamp = null;
+
+        for (Map.Entry<String, ?> entry : values.entrySet()) {
+            Object value = entry.getValue();
+            switch (entry.getKey()) {
+                case "v":
+                    version = intValue(value);
+                    break;
+                case "classIndex":
+                    record.classIndex = intValue(value);
+                    break;
+                case "confidenceBp":
+                    record.confidenceBp = intValue(value);
+                    break;
+                case "timestamp":
+                    if (value instanceof Number) {
+                        record.timestampMillis = ((Number) value).longValue();
+                    } else {
+                        legacyTimestamp = stringValue(value);
+                    }
+                    break;
+                case "disease":
+                    legacyDisease = stringValue(value);
+                    break;
+                case "confidence":
+                    legacyConfidence = value instanceof Number ? ((Number) value).floatValue() : 0f;
+                    break;
+                case "imageRef":
+                    record.imageRef = stringValue(value);
+                    break;
+                case "imageBytes":
+                    record.imageBytes = intValue(value);
+                    break;
+                case "imageWidth":
+                    record.imageWidth = intValue(value);
+                    break;
+                case "imageHeight":
+                    record.imageHeight = intValue(value);
+                    break;
+                case "previewRef":
+                    record.previewRef = stringValue(value);
+                    break;
+                case "previewBytes":
+                    record.previewBytes = intValue(value);
+                    break;
+                case "thumbRef":
+                    record.thumbRef = stringValue(value);
+                    break;
+                case "thumbBytes":
+                    record.thumbBytes = intValue(value);
+                    break;
+                case "image":
+                    record.imageBase64 = stringValue(value);
+                    break;
+                case "probs":
+                    record.probabilities = decodeProbabilities(stringValue(value));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if (version < 2) {
+            record.classIndex = classIndexOf(legacyDisease);
+            record.confidenceBp = toConfidenceBp(legacyConfidence);
+            record.timestampMillis = parseLegacyTimestamp(legacyTimestamp);
+        }
+        if (record.classIndex < 0 || record.classIndex >= ModelRegistry.CLASS_NAMES.length) {
+            if (legacyDisease == null) {
+                return null;
+            }
+            record.classIndex = -1;
+            record.unknownDisease = legacyDisease;
+        }
+        return record;
+    }
+
+    public String toJson() {
+        return new JSONObject(toMap()).toString();
+    }
+
+    public static DetectionRecord fromJson(String id, String json) throws JSONException {
+        JSONObject object = new JSONObject(json);
+        Map<String, Object> values = new HashMap<>();
+        for (Iterator<String> keys = object.keys(); keys.hasNext(); ) {
+            String key = keys.next();
+            values.put(key, object.get(key));
+        }
+        return fromMap(id, values);
+    }
+
+    public String diseaseName() {
+        return classIndex >= 0 ? ModelRegistry.CLASS_NAMES[classIndex] : unknownDisease;
+    }
+
+    /** Confidence in percent. */
+    public float confidencePercent() {
+        return confidenceBp / (float) CONFIDENCE_SCALE;
+    }
+
+    /** Converts a confidence in percent to the stored fixed-point value. */
+    public static int toConfidenceBp(float percent) {
+        return Math.round(percent * CONFIDENCE_SCALE);
+    }
+
+    /** Stores the model's softmax output; call before writing the record. */
+    public void setProbabilities(float[] softmax) {
+        probabilities = ProbabilityCodec.encode(softmax);
+    }
+
+    /** Decoded probability per class, or null for records saved without the distribution. */
+    public float[] probabilities() {
+        return probabilities != null ? ProbabilityCodec.decode(probabilities) : null;
+    }
+
+    /** Up to k most likely class indices, most likely first; empty without a distribution. */
+    public int[] differentialDiagnoses(int k) {
+        return probabilities != null ? ProbabilityCodec.topK(probabilities, k) : new int[0];
+    }
+
+    /** Blob shown in list rows: the thumbnail when there is one, else the full image. */
+    public String listImageRef() {
+        return thumbRef != null ? thumbRef : imageRef;
+    }
+
+    static int classIndexOf(String disease) {
+        if (disease != null) {
+            for (int i = 0; i < ModelRegistry.CLASS_NAMES.length; i++) {
+                if (ModelRegistry.CLASS_NAMES[i].equals(disease)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // The writer's locale may have used non-ASCII digits, so try it before the ASCII fallback
+    static long parseLegacyTimestamp(String timestamp) {
+        if (timestamp == null) {
+            return 0;
+        }
+        for (Locale locale : new Locale[]{Locale.getDefault(), Locale.US}) {
+            try {
+                return new SimpleDateFormat(LEGACY_TIMESTAMP_PATTERN, locale).parse(timestamp).getTime();
+            } catch (ParseException e) {
+                // Try the next locale
+            }
+        }
+        return 0;
+    }
+
+    private static byte[] decodeProbabilities(String encoded) {
+        if (encoded == null) {
+            return null;
+        }
+        try {
+            return Base64.getDecoder().decode(encoded);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static int intValue(Object value) {
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+
+    private static String stringValue(Object value) {
+        return value instanceof String ? (String) value : null;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.eddc;
+
+import android.util.Log;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Size-bounded directory of byte blobs, one file per key.
+ * Reads refresh a file's modification time, and when the directory grows past its bound the
+ * least recently used files are deleted until it is back under three quarters of it.
+ * Keys must be valid file names.
+ */
+public class DiskCache {
+
+    private static final String TAG = "DiskCache";
+
+    private final File directory;
+    private final long maxBytes;
+    private long sizeBytes = -1;
+
+    public DiskCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /** Returns the stored bytes, or null when the key is absent or unreadable. */
+    public synchronized byte[] get(String key) {
+        File file = new File(directory, key);
+        if (!file.isFile()) {
+            return null;
+        }
+        byte[] data = new byte[(int) file.length()];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readFully(data);
+        } catch (IOException e) {
+            Log.w(TAG, "Dropping unreadable cache file " + file.getName(), e);
+            delete(file);
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        return data;
+    }
+
+    public synchronized void put(String key, byte[] data) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(TAG, "Cannot create " + directory);
+            return;
+        }
+        File file = new File(directory, key);
+        long previousLength = file.length();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write cache file " + file.getName(), e);
+            delete(file);
+            return;
+        }
+
+        if (sizeBytes < 0) {
+            sizeBytes = directorySize();
+        } else {
+            sizeBytes += file.length() - previousLength;
+        }
+        if (sizeBytes > maxBytes) {
+            evict();
+        }
+    }
+
+    public synchronized void remove(String key) {
+        delete(new File(directory, key));
+    }
+
+    private void evict() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        long target = maxBytes * 3 / 4;
+        for (File file : files) {
+            if (sizeBytes <= target) {
+                break;
+            }
+            delete(file);
+        }
+    }
+
+    private void delete(File file) {
+        long length = file.length();
+        if (file.delete() && sizeBytes >= 0) {
+            sizeBytes -= length;
+        }
+    }
+
+    private long directorySize() {
+        long total = 0;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                total += file.length();
+            }
+        }
+        return total;
+    }
+}
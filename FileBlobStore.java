@@ -0,0 +1,75 @@
+package com.example.eddc;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * ImageBlobStore that keeps blobs as files under a root directory.
+ * Stands in for Firebase Storage in tests and offline tools; writes are atomic renames.
+ */
+public class FileBlobStore implements ImageBlobStore {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File root;
+
+    public FileBlobStore(File root) {
+        this.root = root;
+    }
+
+    @Override
+    public void put(String path, byte[] data) throws IOException {
+        File target = resolve(path);
+        File parent = target.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+
+        File temp = new File(parent, target.getName() + TEMP_SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(data);
+            out.getFD().sync();
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Failed to move " + temp + " to " + target);
+        }
+    }
+
+    @Override
+    public byte[] get(String path) throws IOException {
+        File file = resolve(path);
+        if (!file.isFile()) {
+            throw new FileNotFoundException(path);
+        }
+        byte[] data = new byte[(int) file.length()];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readFully(data);
+        }
+        return data;
+    }
+
+    @Override
+    public void delete(String path) throws IOException {
+        File file = resolve(path);
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Failed to delete " + file);
+        }
+    }
+
+    // Blob paths come from database keys; refuse anything that would escape the root
+    private File resolve(String path) throws IOException {
+        File file = new File(root, path).getCanonicalFile();
+        if (!file.getPath().startsWith(root.getCanonicalPath() + File.separator)) {
+            throw new IOException("Invalid blob path " + path);
+        }
+        return file;
+    }
+}
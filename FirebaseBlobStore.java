@@ -0,0 +1,61 @@
+package com.example.eddc;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageReference;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * ImageBlobStore backed by the app's default Firebase Storage bucket.
+ * The Storage tasks are awaited, so every method must be called off the main thread.
+ */
+public class FirebaseBlobStore implements ImageBlobStore {
+
+    private static final long TIMEOUT_SECONDS = 30;
+
+    // Largest blob get() will download; detection images are a few hundred KB at most
+    private static final long MAX_DOWNLOAD_BYTES = 4L * 1024 * 1024;
+
+    private final StorageReference root;
+
+    public FirebaseBlobStore() {
+        this(FirebaseStorage.getInstance().getReference());
+    }
+
+    public FirebaseBlobStore(StorageReference root) {
+        this.root = root;
+    }
+
+    @Override
+    public void put(String path, byte[] data) throws IOException {
+        await(root.child(path).putBytes(data));
+    }
+
+    @Override
+    public byte[] get(String path) throws IOException {
+        return await(root.child(path).getBytes(MAX_DOWNLOAD_BYTES));
+    }
+
+    @Override
+    public void delete(String path) throws IOException {
+        await(root.child(path).delete());
+    }
+
+    private static <T> T await(Task<T> task) throws IOException {
+        try {
+            return Tasks.await(task, TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IOException("Storage request timed out", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.eddc;
+
+/**
+ * Layout of the realtime database.
+ *
+ * users/{phone} holds only the credentials and profile fields, so the sign-in, sign-up and
+ * password screens read a few bytes no matter how many screenings a user has. Detections live
+ * in history/{phone}/{detectionId}. Before the split they were stored under
+ * users/{phone}/history; HistorySyncEngine moves them on first sync and migrate_users.py moves
+ * them for every user at once.
+ */
+public final class FirebasePaths {
+
+    /** The app's realtime database instance. */
+    public static final String DATABASE_URL =
+            "https://eye-disease-detection-6a200-default-rtdb.asia-southeast1.firebasedatabase.app";
+
+    /** Credentials and profile root: users/{phone}. */
+    public static final String USERS = "users";
+
+    /** Field of users/{phone} holding the password. */
+    public static final String PASSWORD = "password";
+
+    /** Detection history root: history/{phone}/{detectionId}. */
+    public static final String HISTORY = "history";
+
+    /** Pre-split history location under users/{phone}. */
+    public static final String LEGACY_HISTORY_CHILD = "history";
+
+    private FirebasePaths() {
+    }
+
+    public static String password(String phone) {
+        return USERS + "/" + phone + "/" + PASSWORD;
+    }
+
+    public static String history(String phone) {
+        return HISTORY + "/" + phone;
+    }
+
+    public static String legacyHistory(String phone) {
+        return USERS + "/" + phone + "/" + LEGACY_HISTORY_CHILD;
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.eddc;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.Transaction;
+import com.google.firebase.database.ValueEventListener;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * RealtimeStore backed by the app's Firebase realtime database at FirebasePaths.DATABASE_URL.
+ * The database tasks are awaited, so every method except pushKey and addConnectedListener
+ * must be called off the main thread.
+ */
+public class FirebaseRealtimeStore implements RealtimeStore {
+
+    private static final String TAG = "FirebaseRealtimeStore";
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private static volatile FirebaseRealtimeStore instance;
+
+    private final FirebaseDatabase database;
+    private final DatabaseReference root;
+
+    public FirebaseRealtimeStore(FirebaseDatabase database) {
+        this.database = database;
+        this.root = database.getReference();
+    }
+
+    public static FirebaseRealtimeStore getInstance() {
+        if (instance == null) {
+            synchronized (FirebaseRealtimeStore.class) {
+                if (instance == null) {
+                    instance = new FirebaseRealtimeStore(FirebaseDatabase.getInstance(FirebasePaths.DATABASE_URL));
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public Object get(String path) throws IOException {
+        return await(root.child(path).get()).getValue();
+    }
+
+    @Override
+    public LinkedHashMap<String, Object> getChildrenAfter(String path, String afterKey, int limit) throws IOException {
+        Query query = root.child(path).orderByKey();
+        if (afterKey != null) {
+            query = query.startAfter(afterKey);
+        }
+        DataSnapshot page = await(query.limitToFirst(limit).get());
+
+        LinkedHashMap<String, Object> children = new LinkedHashMap<>();
+        for (DataSnapshot child : page.getChildren()) {
+            children.put(child.getKey(), child.getValue());
+        }
+        return children;
+    }
+
+    @Override
+    public void set(String path, Object value) throws IOException {
+        await(root.child(path).setValue(value));
+    }
+
+    @Override
+    public void update(Map<String, Object> values) throws IOException {
+        await(root.updateChildren(values));
+    }
+
+    @Override
+    public boolean setIfAbsent(String path, Object value) throws IOException {
+        TaskCompletionSource<Boolean> result = new TaskCompletionSource<>();
+        root.child(path).runTransaction(new Transaction.Handler() {
+            @NonNull
+            @Override
+            public Transaction.Result doTransaction(@NonNull MutableData currentData) {
+                // Runs first against the cached value, then again if the server disagrees
+                if (currentData.getValue() != null) {
+                    return Transaction.abort();
+                }
+                currentData.setValue(value);
+                return Transaction.success(currentData);
+            }
+
+            @Override
+            public void onComplete(DatabaseError error, boolean committed, DataSnapshot snapshot) {
+                if (error != null) {
+                    result.setException(error.toException());
+                } else {
+                    result.setResult(committed);
+                }
+            }
+        });
+        return await(result.getTask());
+    }
+
+    @Override
+    public String pushKey(String path) {
+        return root.child(path).push().getKey();
+    }
+
+    @Override
+    public void addConnectedListener(Runnable listener) {
+        database.getReference(".info/connected").addValueEventListener(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                if (Boolean.TRUE.equals(snapshot.getValue(Boolean.class))) {
+                    listener.run();
+                }
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.w(TAG, "Connection state listener cancelled", error.toException());
+            }
+        });
+    }
+
+    private static <T> T await(Task<T> task) throws IOException {
+        try {
+            return Tasks.await(task, TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IOException("Database request timed out", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        }
+    }
+}
@@ -1,8 +1,7 @@
 package com.example.eddc;
 
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.util.Base64;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -20,17 +19,18 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.Query;
-import com.google.firebase.database.ValueEventListener;
 
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class History extends AppCompatActivity {
 
@@ -38,14 +38,38 @@ public class History extends AppCompatActivity {
     private static final String PREFS_NAME = "EDDCPrefs";
     private static final String USER_ID_KEY = "user_id";
 
+    // Entries per local query, and how close to the end of the list the next page is requested
+    private static final int PAGE_SIZE = 20;
+    private static final int PREFETCH_DISTANCE = 5;
+
+    // Matches imgHistoryEye in history_list_item.xml
+    private static final int THUMBNAIL_SIZE_DP = 100;
+
     private RecyclerView recyclerView;
     private ProgressBar progressBar;
     private TextView txtNoHistory;
     private HistoryAdapter adapter;
-    private List<DetectionHistoryItem> historyItems;
+    private List<DetectionRecord> historyItems;
 
     private String currentUserId;
-    private DatabaseReference databaseRef;
+    private LocalHistoryStore localHistory;
+    private HistorySyncEngine syncEngine;
+    private final ExecutorService storeExecutor = Executors.newSingleThreadExecutor();
+    private final ImageBlobStore remoteBlobs = new FirebaseBlobStore();
+
+    private HistoryPager pager;
+    private boolean firstSyncFinished;
+    private long firstPageRequestMillis;
+    private HistoryImageLoader imageLoader;
+    private JankTracker jankTracker;
+    private int thumbnailSizePx;
+
+    // Records store epoch millis; they are only formatted for display, in the viewer's locale
+    private final SimpleDateFormat timestampFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
+
+    // Image bytes fetched per row on cache misses, to check that rows stay around the thumbnail size
+    private final AtomicLong imageBytesLoaded = new AtomicLong();
+    private final AtomicInteger imagesLoaded = new AtomicInteger();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -58,9 +82,10 @@ public class History extends AppCompatActivity {
         // Get user ID from intent with multiple fallbacks
         setupUserId();
 
-        // Initialize Firebase
-        databaseRef = FirebaseDatabase.getInstance("https://eye-disease-detection-6a200-default-rtdb.asia-southeast1.firebasedatabase.app")
-                .getReference();
+        // History is read from the device and kept in sync with Firebase in the background
+        localHistory = LocalHistoryStore.getInstance(this);
+        syncEngine = HistorySyncEngine.getInstance(this);
+        pager = new HistoryPager(localHistory, currentUserId, PAGE_SIZE, storeExecutor, this::runOnUiThread);
 
         // Initialize UI components
         recyclerView = findViewById(R.id.recyclerHistory);
@@ -71,6 +96,9 @@ public class History extends AppCompatActivity {
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
         historyItems = new ArrayList<>();
         adapter = new HistoryAdapter(historyItems);
+        imageLoader = new HistoryImageLoader(this);
+        jankTracker = new JankTracker(getWindowManager().getDefaultDisplay().getRefreshRate());
+        thumbnailSizePx = Math.round(THUMBNAIL_SIZE_DP * getResources().getDisplayMetrics().density);
         recyclerView.setAdapter(adapter);
 
         // Load history data
@@ -110,115 +138,161 @@ public class History extends AppCompatActivity {
 
     private void loadHistoryData() {
         progressBar.setVisibility(View.VISIBLE);
+        firstPageRequestMillis = SystemClock.elapsedRealtime();
 
-        // Reference to user's history in database
-        Query historyQuery = databaseRef.child("users").child(currentUserId).child("history")
-                .orderByChild("timestamp");
-
-        historyQuery.addListenerForSingleValueEvent(new ValueEventListener() {
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                progressBar.setVisibility(View.GONE);
-                historyItems.clear();
-
-                if (!dataSnapshot.exists() || !dataSnapshot.hasChildren()) {
-                    txtNoHistory.setVisibility(View.VISIBLE);
-                    recyclerView.setVisibility(View.GONE);
-                    Log.d(TAG, "No history found for user: " + currentUserId);
-                    return;
-                }
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                prefetchIfNeeded();
+            }
+        });
 
-                // Process each history item
-                for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                    try {
-                        String disease = snapshot.child("disease").getValue(String.class);
-
-                        // Handle both Double and Float since the value type might vary
-                        float confidence = 0f;
-                        if (snapshot.child("confidence").getValue() instanceof Double) {
-                            Double confDouble = snapshot.child("confidence").getValue(Double.class);
-                            confidence = confDouble != null ? confDouble.floatValue() : 0f;
-                        } else if (snapshot.child("confidence").getValue() instanceof Float) {
-                            Float confFloat = snapshot.child("confidence").getValue(Float.class);
-                            confidence = confFloat != null ? confFloat : 0f;
-                        } else if (snapshot.child("confidence").getValue() instanceof Long) {
-                            Long confLong = snapshot.child("confidence").getValue(Long.class);
-                            confidence = confLong != null ? confLong.floatValue() : 0f;
-                        } else if (snapshot.child("confidence").getValue() instanceof Integer) {
-                            Integer confInt = snapshot.child("confidence").getValue(Integer.class);
-                            confidence = confInt != null ? confInt.floatValue() : 0f;
-                        }
-
-                        String timestamp = snapshot.child("timestamp").getValue(String.class);
-                        String imageBase64 = snapshot.child("image").getValue(String.class);
-
-                        if (disease == null) {
-                            Log.w(TAG, "Skipping history item with null disease name");
-                            continue;
-                        }
-
-                        DetectionHistoryItem item = new DetectionHistoryItem(
-                                snapshot.getKey(),
-                                disease,
-                                confidence,
-                                timestamp != null ? timestamp : "Unknown date",
-                                imageBase64
-                        );
-
-                        historyItems.add(item);
-                        Log.d(TAG, "Added history item: " + disease + " with confidence: " + confidence);
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error parsing history item", e);
-                    }
-                }
+        // The list comes from the device; the sync brings in detections made elsewhere
+        loadNextPage();
+        syncEngine.addListener(syncListener);
+        syncEngine.requestSync(currentUserId);
+    }
 
-                // Sort items newest first
-                Collections.reverse(historyItems);
-
-                if (historyItems.isEmpty()) {
-                    txtNoHistory.setVisibility(View.VISIBLE);
-                    recyclerView.setVisibility(View.GONE);
-                } else {
-                    txtNoHistory.setVisibility(View.GONE);
-                    recyclerView.setVisibility(View.VISIBLE);
-                    adapter.notifyDataSetChanged();
-                    Log.d(TAG, "Displaying " + historyItems.size() + " history items");
-                }
+    // Requests the next page once the last visible row is within PREFETCH_DISTANCE of the end
+    private void prefetchIfNeeded() {
+        // Posted callbacks and late pages can arrive after onDestroy shut the store executor down
+        if (isDestroyed() || pager.isLoading() || !pager.hasMore()) {
+            return;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        if (layoutManager != null
+                && layoutManager.findLastVisibleItemPosition() >= historyItems.size() - PREFETCH_DISTANCE) {
+            loadNextPage();
+        }
+    }
+
+    private void loadNextPage() {
+        if (isDestroyed()) {
+            return;
+        }
+        pager.loadNextPage(this::onPageLoaded);
+    }
+
+    private void onPageLoaded(List<DetectionRecord> page, boolean hasMore) {
+        int start = historyItems.size();
+        historyItems.addAll(page);
+
+        if (historyItems.isEmpty()) {
+            // A fresh install has nothing local yet; wait for the first sync before saying so
+            if (firstSyncFinished) {
+                showEmptyState();
             }
+            return;
+        }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError databaseError) {
-                progressBar.setVisibility(View.GONE);
-                Toast.makeText(History.this,
-                        "Failed to load history: " + databaseError.getMessage(),
-                        Toast.LENGTH_SHORT).show();
-                Log.e(TAG, "Database error loading history", databaseError.toException());
+        progressBar.setVisibility(View.GONE);
+        if (start == 0) {
+            txtNoHistory.setVisibility(View.GONE);
+            recyclerView.setVisibility(View.VISIBLE);
+            Log.d(TAG, "First page in " + (SystemClock.elapsedRealtime() - firstPageRequestMillis) + " ms");
+        }
+        adapter.notifyItemRangeInserted(start, page.size());
+        Log.d(TAG, "Displaying " + historyItems.size() + " history items");
+
+        // A short page may not fill the screen, in which case no scroll event will follow
+        recyclerView.post(this::prefetchIfNeeded);
+    }
+
+    private void showEmptyState() {
+        progressBar.setVisibility(View.GONE);
+        txtNoHistory.setVisibility(View.VISIBLE);
+        recyclerView.setVisibility(View.GONE);
+        Log.d(TAG, "No history found for user: " + currentUserId);
+    }
+
+    private final HistorySyncEngine.Listener syncListener = (userId, pushed, pulled, success) -> {
+        if (isDestroyed() || !userId.equals(currentUserId)) {
+            return;
+        }
+        firstSyncFinished = true;
+        if (!success) {
+            Toast.makeText(History.this, R.string.offline_showing_saved_history, Toast.LENGTH_SHORT).show();
+        }
+
+        if (pulled == 0) {
+            if (historyItems.isEmpty() && !pager.isLoading()) {
+                showEmptyState();
             }
+            return;
+        }
+
+        // Pulled records may be newer than the first row or older than the last one
+        pager.expectMore();
+        if (historyItems.isEmpty()) {
+            // Restart paging; a page still in flight was read before the pull and is dropped
+            pager.reset();
+            loadNextPage();
+            return;
+        }
+        String newestId = historyItems.get(0).id;
+        storeExecutor.execute(() -> {
+            List<DetectionRecord> newer = localHistory.loadNewer(currentUserId, newestId);
+            runOnUiThread(() -> {
+                if (!newer.isEmpty()) {
+                    historyItems.addAll(0, newer);
+                    adapter.notifyItemRangeInserted(0, newer.size());
+                }
+                prefetchIfNeeded();
+            });
         });
+    };
+
+    // Runs on the image loader's threads. Blobs of detections made on this device are read
+    // locally, which also covers ones that have not been uploaded yet.
+    private byte[] fetchImage(DetectionRecord record) throws IOException {
+        byte[] bytes;
+        String imageRef = record.listImageRef();
+        if (imageRef != null) {
+            try {
+                bytes = syncEngine.getLocalBlobs().get(imageRef);
+            } catch (FileNotFoundException e) {
+                bytes = remoteBlobs.get(imageRef);
+            }
+        } else {
+            bytes = Base64.decode(record.imageBase64, Base64.DEFAULT);
+        }
+        imageBytesLoaded.addAndGet(bytes.length);
+        imagesLoaded.incrementAndGet();
+        return bytes;
     }
 
-    // History Item model class
-    static class DetectionHistoryItem {
-        String id;
-        String disease;
-        float confidence;
-        String timestamp;
-        String imageBase64;
-
-        DetectionHistoryItem(String id, String disease, float confidence, String timestamp, String imageBase64) {
-            this.id = id;
-            this.disease = disease;
-            this.confidence = confidence;
-            this.timestamp = timestamp;
-            this.imageBase64 = imageBase64;
+    @Override
+    protected void onResume() {
+        super.onResume();
+        jankTracker.start();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        jankTracker.stop();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        syncEngine.removeListener(syncListener);
+        storeExecutor.shutdown();
+        imageLoader.shutdown();
+        Log.d(TAG, String.format(Locale.US, "Image cache hit ratio %.2f (%s), janky frames %d of %d",
+                imageLoader.getHitRatio(), imageLoader.formatStats(),
+                jankTracker.getJankyFrames(), jankTracker.getFrames()));
+        int rows = imagesLoaded.get();
+        if (rows > 0) {
+            Log.d(TAG, "Loaded " + rows + " row images, " + imageBytesLoaded.get() / rows + " bytes per row");
         }
     }
 
     // RecyclerView Adapter
     class HistoryAdapter extends RecyclerView.Adapter<HistoryAdapter.HistoryViewHolder> {
-        private List<DetectionHistoryItem> items;
+        private List<DetectionRecord> items;
 
-        HistoryAdapter(List<DetectionHistoryItem> items) {
+        HistoryAdapter(List<DetectionRecord> items) {
             this.items = items;
         }
 
@@ -232,32 +306,35 @@ public class History extends AppCompatActivity {
 
         @Override
         public void onBindViewHolder(@NonNull HistoryViewHolder holder, int position) {
-            DetectionHistoryItem item = items.get(position);
+            DetectionRecord item = items.get(position);
 
             // Set text data
-            holder.txtDisease.setText(item.disease);
+            holder.txtDisease.setText(item.diseaseName());
 
             // MODIFIED: Hide confidence in history view
             holder.txtConfidence.setVisibility(View.GONE);
 
-            holder.txtTimestamp.setText(item.timestamp);
-
-            // Load image if available
-            if (item.imageBase64 != null && !item.imageBase64.isEmpty()) {
-                try {
-                    byte[] decodedBytes = Base64.decode(item.imageBase64, Base64.DEFAULT);
-                    Bitmap bitmap = BitmapFactory.decodeByteArray(decodedBytes, 0, decodedBytes.length);
-                    holder.imgEye.setImageBitmap(bitmap);
-                    holder.imgEye.setVisibility(View.VISIBLE);
-                } catch (Exception e) {
-                    Log.e(TAG, "Error decoding image", e);
-                    holder.imgEye.setVisibility(View.GONE);
-                }
+            holder.txtTimestamp.setText(item.timestampMillis > 0
+                    ? timestampFormat.format(new Date(item.timestampMillis))
+                    : "Unknown date");
+
+            // Load image if available; decoding and downloads happen on the loader's threads
+            String imageRef = item.listImageRef();
+            if (imageRef != null || (item.imageBase64 != null && !item.imageBase64.isEmpty())) {
+                holder.imgEye.setVisibility(View.VISIBLE);
+                String key = imageRef != null ? imageRef : "inline/" + item.id;
+                imageLoader.load(holder.imgEye, key, thumbnailSizePx, () -> fetchImage(item));
             } else {
+                imageLoader.cancel(holder.imgEye);
                 holder.imgEye.setVisibility(View.GONE);
             }
         }
 
+        @Override
+        public void onViewRecycled(@NonNull HistoryViewHolder holder) {
+            imageLoader.cancel(holder.imgEye);
+        }
+
         @Override
         public int getItemCount() {
             return items.size();
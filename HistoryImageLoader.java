@@ -0,0 +1,177 @@
+package com.example.eddc;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads history row images off the UI thread.
+ * Decoded bitmaps, downsampled to the target view size, are kept in a memory LRU bounded by
+ * byte count; the encoded source bytes are kept in a disk cache so a cold memory cache does not
+ * mean another download. Each ImageView has at most one load in flight, and binding it to a new
+ * image cancels the previous one. The newest request runs first, since it is the row the user
+ * just scrolled to.
+ */
+public class HistoryImageLoader {
+
+    private static final String TAG = "HistoryImageLoader";
+    private static final String CACHE_DIR = "history_images";
+    private static final long MAX_DISK_BYTES = 16L * 1024 * 1024;
+    private static final int THREADS = 2;
+
+    private final LruCache<String, Bitmap> memory;
+    private final DiskCache disk;
+    private final ThreadPoolExecutor executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<ImageView, Future<?>> inFlight = new WeakHashMap<>();
+
+    private final AtomicInteger memoryHits = new AtomicInteger();
+    private final AtomicInteger diskHits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    public HistoryImageLoader(Context context) {
+        // An eighth of the heap for decoded bitmaps, measured in KB
+        int maxKb = (int) (Runtime.getRuntime().maxMemory() / 1024 / 8);
+        memory = new LruCache<String, Bitmap>(maxKb) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount() / 1024;
+            }
+        };
+        disk = new DiskCache(new File(context.getCacheDir(), CACHE_DIR), MAX_DISK_BYTES);
+
+        LinkedBlockingDeque<Runnable> lifo = new LinkedBlockingDeque<Runnable>() {
+            @Override
+            public boolean offer(Runnable runnable) {
+                return offerFirst(runnable);
+            }
+        };
+        executor = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS, lifo);
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Shows the image identified by key in the view, downsampled to targetSize pixels.
+     * Must be called on the main thread.
+     *
+     * @param fetch downloads or otherwise produces the encoded image bytes on a cache miss
+     */
+    public void load(ImageView view, String key, int targetSize, Callable<byte[]> fetch) {
+        cancel(view);
+        view.setTag(key);
+
+        String memoryKey = key + "@" + targetSize;
+        Bitmap cached = memory.get(memoryKey);
+        if (cached != null) {
+            memoryHits.incrementAndGet();
+            view.setImageBitmap(cached);
+            return;
+        }
+        view.setImageBitmap(null);
+
+        Future<?> future = executor.submit(() -> {
+            try {
+                Bitmap bitmap = decode(key, targetSize, fetch);
+                if (bitmap == null) {
+                    if (!Thread.currentThread().isInterrupted()) {
+                        Log.w(TAG, "Undecodable image " + key);
+                    }
+                    return;
+                }
+                memory.put(memoryKey, bitmap);
+                mainHandler.post(() -> {
+                    if (key.equals(view.getTag())) {
+                        view.setImageBitmap(bitmap);
+                    }
+                });
+            } catch (Exception e) {
+                // An interrupt means the row was recycled and the load cancelled
+                if (!Thread.currentThread().isInterrupted()) {
+                    Log.e(TAG, "Error loading image " + key, e);
+                }
+            }
+        });
+        inFlight.put(view, future);
+    }
+
+    /** Cancels any load targeting the view, e.g. when its row is recycled. Main thread only. */
+    public void cancel(ImageView view) {
+        Future<?> previous = inFlight.remove(view);
+        if (previous != null) {
+            previous.cancel(true);
+            // Drop the cancelled task from the queue right away instead of when a worker reaches it
+            executor.remove((Runnable) previous);
+        }
+        view.setTag(null);
+    }
+
+    /** Fraction of loads served from memory or disk, or -1 before any load. */
+    public float getHitRatio() {
+        int hits = memoryHits.get() + diskHits.get();
+        int total = hits + misses.get();
+        return total == 0 ? -1 : (float) hits / total;
+    }
+
+    public String formatStats() {
+        return "memory hits " + memoryHits.get() + ", disk hits " + diskHits.get() + ", misses " + misses.get();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Bitmap decode(String key, int targetSize, Callable<byte[]> fetch) throws Exception {
+        String diskKey = diskKey(key);
+        byte[] bytes = disk.get(diskKey);
+        if (bytes != null) {
+            diskHits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            bytes = fetch.call();
+            if (Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+            disk.put(diskKey, bytes);
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = ImageIngestor.calculateSampleSize(options.outWidth, options.outHeight, targetSize);
+        return BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+    }
+
+    // Blob paths and record ids contain characters that are not safe in file names
+    private static String diskKey(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.eddc;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads a user's history from the LocalHistoryStore newest first, one page at a time.
+ * Each page ends before the oldest id already delivered; ids are push keys, which are
+ * chronological and unique. Queries run on the store executor and pages are delivered on the
+ * callback executor, normally the main thread, which must also make every other call.
+ */
+public class HistoryPager {
+
+    /** Receives pages on the callback executor. */
+    public interface Listener {
+        void onPageLoaded(List<DetectionRecord> newestFirst, boolean hasMore);
+    }
+
+    private final LocalHistoryStore store;
+    private final String userId;
+    private final int pageSize;
+    private final Executor storeExecutor;
+    private final Executor callbackExecutor;
+
+    private String oldestId;
+    private boolean loading;
+    private boolean hasMore = true;
+
+    // Pages read before a reset() are dropped when they arrive
+    private int generation;
+
+    public HistoryPager(LocalHistoryStore store, String userId, int pageSize,
+                        Executor storeExecutor, Executor callbackExecutor) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be at least 1");
+        }
+        this.store = store;
+        this.userId = userId;
+        this.pageSize = pageSize;
+        this.storeExecutor = storeExecutor;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    /**
+     * Requests the next older page. Ignored while a page is in flight or after the oldest
+     * record has been delivered.
+     */
+    public void loadNextPage(Listener listener) {
+        if (loading || !hasMore) {
+            return;
+        }
+        loading = true;
+        int requested = generation;
+        String beforeId = oldestId;
+        storeExecutor.execute(() -> {
+            List<DetectionRecord> page = store.loadPage(userId, beforeId, pageSize);
+            callbackExecutor.execute(() -> {
+                if (requested != generation) {
+                    return;
+                }
+                loading = false;
+                if (!page.isEmpty()) {
+                    oldestId = page.get(page.size() - 1).id;
+                }
+                hasMore = page.size() == pageSize;
+                listener.onPageLoaded(page, hasMore);
+            });
+        });
+    }
+
+    /** Starts over from the newest record; a page still in flight is dropped. */
+    public void reset() {
+        generation++;
+        loading = false;
+        hasMore = true;
+        oldestId = null;
+    }
+
+    /** Records may now exist below the oldest one delivered, e.g. after a sync pulled older ones. */
+    public void expectMore() {
+        hasMore = true;
+    }
+}
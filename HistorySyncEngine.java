@@ -0,0 +1,223 @@
+package com.example.eddc;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps LocalHistoryStore and history/{id} in step, through RemoteHistory.
+ * Pending local records are pushed oldest first in batches, each batch as one multi-path
+ * update after its image blobs are uploaded. Remote records are pulled in push-key order
+ * starting after the last key already pulled, so each sync only transfers what is new.
+ * Syncs run on one background thread, are coalesced per user, and are retried whenever the
+ * database connection comes back. The first sync for a user also moves any history still
+ * stored under the pre-split users/{id}/history node.
+ */
+public class HistorySyncEngine {
+
+    private static final String TAG = "HistorySyncEngine";
+    private static final String LOCAL_BLOB_DIR = "blobs";
+    private static final int PUSH_BATCH = 20;
+    private static final int PULL_PAGE = 50;
+    private static final String PREFS_NAME = "EDDCSyncPrefs";
+    private static final String KEY_MIGRATED_PREFIX = "history_migrated_";
+
+    private static volatile HistorySyncEngine instance;
+
+    /** Called on the main thread after each sync attempt for a user. */
+    public interface Listener {
+        void onSyncFinished(String userId, int pushed, int pulled, boolean success);
+    }
+
+    private final LocalHistoryStore store;
+    private final RemoteHistory remote;
+    private final SharedPreferences prefs;
+    private final ImageBlobStore localBlobs;
+    private final ImageBlobStore remoteBlobs;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Set<String> queuedUsers = ConcurrentHashMap.newKeySet();
+    private final Set<String> knownUsers = ConcurrentHashMap.newKeySet();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final InferenceTracer tracer = InferenceTracer.getInstance();
+
+    private HistorySyncEngine(Context context) {
+        Context appContext = context.getApplicationContext();
+        RealtimeStore database = FirebaseRealtimeStore.getInstance();
+        this.store = LocalHistoryStore.getInstance(appContext);
+        this.remote = new RemoteHistory(database);
+        this.prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.localBlobs = new FileBlobStore(new File(appContext.getFilesDir(), LOCAL_BLOB_DIR));
+        this.remoteBlobs = new FirebaseBlobStore();
+
+        // Retry every user seen so far whenever connectivity returns
+        database.addConnectedListener(() -> {
+            for (String userId : knownUsers) {
+                requestSync(userId);
+            }
+        });
+    }
+
+    public static HistorySyncEngine getInstance(Context context) {
+        if (instance == null) {
+            synchronized (HistorySyncEngine.class) {
+                if (instance == null) {
+                    instance = new HistorySyncEngine(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /** Blobs of records made on this device; they are readable before they are uploaded. */
+    public ImageBlobStore getLocalBlobs() {
+        return localBlobs;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Schedules a push and pull for the user unless one is already queued. */
+    public void requestSync(String userId) {
+        knownUsers.add(userId);
+        if (!queuedUsers.add(userId)) {
+            return;
+        }
+        worker.execute(() -> {
+            queuedUsers.remove(userId);
+            sync(userId);
+        });
+    }
+
+    private void sync(String userId) {
+        int pushed = 0;
+        int pulled = 0;
+        boolean success = false;
+        try {
+            migrateLegacyHistory(userId);
+            pushed = pushPending(userId);
+            pulled = pullRemote(userId);
+            success = true;
+            Log.d(TAG, "Synced " + userId + ": pushed " + pushed + ", pulled " + pulled);
+        } catch (IOException e) {
+            // Stays pending; the next connection change or request retries
+            Log.w(TAG, "Sync failed for " + userId, e);
+        }
+
+        int finalPushed = pushed;
+        int finalPulled = pulled;
+        boolean finalSuccess = success;
+        mainHandler.post(() -> {
+            for (Listener listener : listeners) {
+                listener.onSyncFinished(userId, finalPushed, finalPulled, finalSuccess);
+            }
+        });
+    }
+
+    /**
+     * Moves records from the pre-split users/{id}/history node to history/{id}, one page per
+     * atomic multi-path update, so the credentials node stops carrying them. Runs once per user
+     * on this device.
+     */
+    private void migrateLegacyHistory(String userId) throws IOException {
+        if (prefs.getBoolean(KEY_MIGRATED_PREFIX + userId, false)) {
+            return;
+        }
+        int moved = 0;
+        int page;
+        while ((page = remote.moveLegacyPage(userId, PULL_PAGE)) > 0) {
+            moved += page;
+        }
+        prefs.edit().putBoolean(KEY_MIGRATED_PREFIX + userId, true).apply();
+        if (moved > 0) {
+            Log.d(TAG, "Moved " + moved + " legacy history records for " + userId);
+        }
+    }
+
+    private int pushPending(String userId) throws IOException {
+        int pushed = 0;
+        List<DetectionRecord> batch;
+        while (!(batch = store.loadPending(userId, PUSH_BATCH)).isEmpty()) {
+            List<String> ids = new ArrayList<>(batch.size());
+            for (DetectionRecord record : batch) {
+                uploadBlob(record.imageRef);
+                uploadBlob(record.previewRef);
+                uploadBlob(record.thumbRef);
+                ids.add(record.id);
+            }
+
+            long span = tracer.begin();
+            remote.push(userId, batch);
+            tracer.end(InferenceScheduler.Stage.SYNC_PUSH, span);
+            store.markSynced(ids);
+            pushed += batch.size();
+
+            // The thumbnail stays on the device for the history list; the rest is on the server now
+            for (DetectionRecord record : batch) {
+                deleteLocalBlob(record.imageRef);
+                deleteLocalBlob(record.previewRef);
+            }
+        }
+        return pushed;
+    }
+
+    private int pullRemote(String userId) throws IOException {
+        String cursor = store.getLastPulledKey(userId);
+        int pulled = 0;
+        while (true) {
+            RemoteHistory.Page page = remote.pullAfter(userId, cursor, PULL_PAGE);
+            if (page.lastKey == null) {
+                return pulled;
+            }
+
+            store.upsertPulled(userId, page.records, page.lastKey);
+            pulled += page.records.size();
+            cursor = page.lastKey;
+            if (page.size < PULL_PAGE) {
+                return pulled;
+            }
+        }
+    }
+
+    private void uploadBlob(String path) throws IOException {
+        if (path == null) {
+            return;
+        }
+        byte[] data;
+        try {
+            data = localBlobs.get(path);
+        } catch (FileNotFoundException e) {
+            return; // Not made on this device, or already uploaded
+        }
+        remoteBlobs.put(path, data);
+    }
+
+    private void deleteLocalBlob(String path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            localBlobs.delete(path);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to delete local blob " + path, e);
+        }
+    }
+}
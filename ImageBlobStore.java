@@ -0,0 +1,19 @@
+package com.example.eddc;
+
+import java.io.IOException;
+
+/**
+ * Binary storage for detection images, kept out of the realtime database so history records
+ * stay small. Implementations: FirebaseBlobStore (Firebase Storage) and FileBlobStore (local files).
+ * Calls block, so run them on a background thread.
+ */
+public interface ImageBlobStore {
+
+    /** Stores data under path, replacing any existing blob. */
+    void put(String path, byte[] data) throws IOException;
+
+    /** Returns the blob stored under path. */
+    byte[] get(String path) throws IOException;
+
+    void delete(String path) throws IOException;
+}
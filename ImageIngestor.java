@@ -0,0 +1,80 @@
+package com.example.eddc;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes picked images directly at (or just above) the model input size.
+ * The bounds are read first so the full-resolution bitmap is never allocated.
+ */
+public class ImageIngestor {
+
+    private final ContentResolver contentResolver;
+    private final int targetSize;
+
+    public ImageIngestor(ContentResolver contentResolver, int targetSize) {
+        this.contentResolver = contentResolver;
+        this.targetSize = targetSize;
+    }
+
+    /**
+     * Decodes the whole image, downsampled so its shorter side stays at or above targetSize.
+     * Must not be called on the main thread.
+     */
+    public Bitmap decode(Uri uri) throws IOException {
+        BitmapFactory.Options bounds = readBounds(uri);
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inSampleSize = calculateSampleSize(bounds.outWidth, bounds.outHeight, targetSize);
+
+        try (InputStream stream = open(uri)) {
+            Bitmap bitmap = BitmapFactory.decodeStream(stream, null, options);
+            if (bitmap == null) {
+                throw new IOException("Unable to decode image: " + uri);
+            }
+            return bitmap;
+        }
+    }
+
+    /**
+     * Returns the largest power-of-two sample size that keeps the shorter side at or above
+     * the target, so the decoded image is the smallest one that can still be scaled down.
+     */
+    static int calculateSampleSize(int width, int height, int targetSize) {
+        int shortSide = Math.min(width, height);
+        int sampleSize = 1;
+        if (shortSide <= 0 || targetSize <= 0) {
+            return sampleSize;
+        }
+        while (shortSide / (sampleSize * 2) >= targetSize) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private BitmapFactory.Options readBounds(Uri uri) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream stream = open(uri)) {
+            BitmapFactory.decodeStream(stream, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Unable to read image bounds: " + uri);
+        }
+        return bounds;
+    }
+
+    private InputStream open(Uri uri) throws IOException {
+        InputStream stream = contentResolver.openInputStream(uri);
+        if (stream == null) {
+            throw new IOException("Unable to open image: " + uri);
+        }
+        return stream;
+    }
+}
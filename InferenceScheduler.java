@@ -0,0 +1,143 @@
+package com.example.eddc;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide scheduler for the detection pipeline.
+ * I/O work (decode, persistence, model extraction) and compute work (cache lookups,
+ * preprocessing, softmax) run on separate pools with bounded queues, so a slow model load no
+ * longer blocks predictions. Compute tasks preprocess in parallel through BatchPredictor.submit;
+ * the forward passes themselves run one at a time per backend on the predictor's worker. A full
+ * queue rejects new work instead of growing without bound, and work submitted under a key
+ * cancels the previous unfinished task with the same key.
+ */
+public class InferenceScheduler {
+
+    /**
+     * Pipeline stages with their own latency histogram in InferenceTracer. Scheduled tasks are
+     * timed as a whole under the stage they were submitted with, so DECODE includes RGB_CONVERT,
+     * PREDICT includes CACHE_LOOKUP to SOFTMAX, and PERSIST includes the image encodes.
+     */
+    public enum Stage {
+        DECODE,
+        RGB_CONVERT,
+        MODEL_LOAD,
+        CACHE_LOOKUP,
+        PREPROCESS,
+        FORWARD,
+        SOFTMAX,
+        PREDICT,
+        PERSIST,
+        SYNC_PUSH
+    }
+
+    private static final int IO_THREADS = 2;
+    private static final int QUEUE_CAPACITY = 8;
+
+    private static volatile InferenceScheduler instance;
+
+    private final ThreadPoolExecutor ioPool;
+    private final ThreadPoolExecutor computePool;
+    private final Map<Object, Future<?>> latestByKey = new ConcurrentHashMap<>();
+    private final InferenceTracer tracer = InferenceTracer.getInstance();
+
+    private InferenceScheduler() {
+        int computeThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        ioPool = newPool("inference-io", IO_THREADS);
+        computePool = newPool("inference-compute", computeThreads);
+    }
+
+    public static InferenceScheduler getInstance() {
+        if (instance == null) {
+            synchronized (InferenceScheduler.class) {
+                if (instance == null) {
+                    instance = new InferenceScheduler();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Runs an I/O-bound task. When key is non-null, any unfinished task previously submitted
+     * under the same key is cancelled.
+     *
+     * @throws RejectedExecutionException when the I/O queue is full
+     */
+    public <T> Future<T> submitIo(Object key, Stage stage, Callable<T> task) {
+        return submit(ioPool, key, stage, task);
+    }
+
+    /**
+     * Runs a CPU-bound task, with the same superseding and backpressure rules as submitIo.
+     *
+     * @throws RejectedExecutionException when the compute queue is full
+     */
+    public <T> Future<T> submitCompute(Object key, Stage stage, Callable<T> task) {
+        return submit(computePool, key, stage, task);
+    }
+
+    /** Cancels the unfinished task submitted under key, if any. */
+    public void cancel(Object key) {
+        Future<?> previous = latestByKey.remove(key);
+        if (previous != null) {
+            previous.cancel(true);
+        }
+    }
+
+    private <T> Future<T> submit(ThreadPoolExecutor pool, Object key, Stage stage, Callable<T> task) {
+        FutureTask<T> future = new FutureTask<T>(() -> {
+            long span = tracer.begin();
+            try {
+                return task.call();
+            } finally {
+                tracer.end(stage, span);
+            }
+        }) {
+            @Override
+            protected void done() {
+                if (key != null) {
+                    latestByKey.remove(key, this);
+                }
+            }
+        };
+
+        if (key != null) {
+            Future<?> previous = latestByKey.put(key, future);
+            if (previous != null) {
+                previous.cancel(true);
+            }
+        }
+
+        try {
+            pool.execute(future);
+        } catch (RejectedExecutionException e) {
+            if (key != null) {
+                latestByKey.remove(key, future);
+            }
+            throw e;
+        }
+        return future;
+    }
+
+    private static ThreadPoolExecutor newPool(String name, int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), factory, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.eddc;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process-wide latency and event counters for the detection pipeline. Spans are timed with
+ * the monotonic System.nanoTime() clock into one LatencyHistogram per stage; counters track
+ * cache hits, model loads and dropped work. Recording never takes a lock. While disabled,
+ * begin() returns 0 after one volatile read and end() ignores it, so the calls can stay in
+ * release builds.
+ *
+ * Usage: long span = tracer.begin(); ...; tracer.end(Stage.FORWARD, span);
+ */
+public class InferenceTracer {
+
+    /** Events counted alongside the stage latencies. */
+    public enum Counter {
+        CACHE_HIT,
+        CACHE_MISS,
+        MODEL_LOAD,
+        DROPPED_HISTORY_WRITE
+    }
+
+    private static final double[] QUANTILES = {0.50, 0.90, 0.99};
+
+    private static volatile InferenceTracer instance;
+
+    private final LatencyHistogram[] histograms;
+    private final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+    private volatile boolean enabled;
+    private volatile long startNanos = System.nanoTime();
+
+    InferenceTracer() {
+        InferenceScheduler.Stage[] stages = InferenceScheduler.Stage.values();
+        histograms = new LatencyHistogram[stages.length];
+        for (int i = 0; i < stages.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public static InferenceTracer getInstance() {
+        if (instance == null) {
+            synchronized (InferenceTracer.class) {
+                if (instance == null) {
+                    instance = new InferenceTracer();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Samples already recorded are kept; use reset() to start over. */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /** Starts a span: the current monotonic time, or 0 while disabled. */
+    public long begin() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /** Ends a span started by begin(); spans begun while disabled are ignored. */
+    public void end(InferenceScheduler.Stage stage, long beginNanos) {
+        if (beginNanos != 0) {
+            histograms[stage.ordinal()].record(System.nanoTime() - beginNanos);
+        }
+    }
+
+    /** Records a duration measured elsewhere, if enabled. */
+    public void record(InferenceScheduler.Stage stage, long nanos) {
+        if (enabled) {
+            histograms[stage.ordinal()].record(nanos);
+        }
+    }
+
+    public void count(Counter counter) {
+        if (enabled) {
+            counters.incrementAndGet(counter.ordinal());
+        }
+    }
+
+    public long getCount(Counter counter) {
+        return counters.get(counter.ordinal());
+    }
+
+    public LatencyHistogram.Snapshot snapshot(InferenceScheduler.Stage stage) {
+        return histograms[stage.ordinal()].snapshot();
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+        startNanos = System.nanoTime();
+    }
+
+    /** One line per stage with samples, then the counters; short enough for an on-screen overlay. */
+    public String formatStats() {
+        StringBuilder sb = new StringBuilder();
+        for (InferenceScheduler.Stage stage : InferenceScheduler.Stage.values()) {
+            LatencyHistogram.Snapshot s = snapshot(stage);
+            if (s.getCount() > 0) {
+                sb.append(String.format(Locale.US, "%s p50=%.1fms p90=%.1fms p99=%.1fms n=%d%n",
+                        stage, s.getQuantileMillis(0.50), s.getQuantileMillis(0.90),
+                        s.getQuantileMillis(0.99), s.getCount()));
+            }
+        }
+        for (Counter counter : Counter.values()) {
+            sb.append(counter).append('=').append(getCount(counter)).append(' ');
+        }
+        return sb.toString().trim();
+    }
+
+    /**
+     * All stages and counters as JSON: {"enabled", "elapsedMillis", "stages": {STAGE: {"count",
+     * "meanMillis", "maxMillis", "p50Millis", "p90Millis", "p99Millis"}}, "counters": {COUNTER: n}}.
+     */
+    public String toJson() {
+        // Keys are enum names and values are finite numbers, so nothing needs escaping
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"enabled\":").append(enabled);
+        sb.append(",\"elapsedMillis\":").append((System.nanoTime() - startNanos) / 1_000_000);
+        sb.append(",\"stages\":{");
+        for (InferenceScheduler.Stage stage : InferenceScheduler.Stage.values()) {
+            LatencyHistogram.Snapshot s = snapshot(stage);
+            if (stage.ordinal() > 0) {
+                sb.append(',');
+            }
+            sb.append('"').append(stage.name()).append("\":{\"count\":").append(s.getCount());
+            sb.append(String.format(Locale.US, ",\"meanMillis\":%.3f,\"maxMillis\":%.3f",
+                    s.getMeanMillis(), s.getMaxMillis()));
+            for (double quantile : QUANTILES) {
+                sb.append(String.format(Locale.US, ",\"p%02.0fMillis\":%.3f",
+                        quantile * 100, s.getQuantileMillis(quantile)));
+            }
+            sb.append('}');
+        }
+        sb.append("},\"counters\":{");
+        for (Counter counter : Counter.values()) {
+            if (counter.ordinal() > 0) {
+                sb.append(',');
+            }
+            sb.append('"').append(counter.name()).append("\":").append(getCount(counter));
+        }
+        return sb.append("}}").toString();
+    }
+}
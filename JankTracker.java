@@ -0,0 +1,59 @@
+package com.example.eddc;
+
+import android.view.Choreographer;
+
+/**
+ * Counts frames and janky frames on the main thread while started.
+ * A frame is janky when it arrives more than one and a half frame intervals after the previous one.
+ */
+public class JankTracker implements Choreographer.FrameCallback {
+
+    private final long jankThresholdNanos;
+
+    private boolean running;
+    private long lastFrameNanos;
+    private int frames;
+    private int jankyFrames;
+
+    public JankTracker(float refreshRateHz) {
+        this.jankThresholdNanos = (long) (1.5e9 / refreshRateHz);
+    }
+
+    /** Main thread only. */
+    public void start() {
+        if (!running) {
+            running = true;
+            lastFrameNanos = 0;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /** Main thread only. */
+    public void stop() {
+        running = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) {
+            return;
+        }
+        if (lastFrameNanos != 0) {
+            frames++;
+            if (frameTimeNanos - lastFrameNanos > jankThresholdNanos) {
+                jankyFrames++;
+            }
+        }
+        lastFrameNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    public int getFrames() {
+        return frames;
+    }
+
+    public int getJankyFrames() {
+        return jankyFrames;
+    }
+}
@@ -0,0 +1,430 @@
+package com.example.eddc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Pure-Java inference for the CNN defined in app_2.py:
+ * three Conv(3x3, stride 2)-BatchNorm-LeakyReLU-MaxPool(2) blocks, then Linear(576, 128)-ReLU-Linear(128, classes).
+ * BatchNorm is folded into the convolutions at load time, convolutions run as im2col plus a
+ * blocked SGEMM, and GEMM column blocks are spread across cores with fork-join.
+ * Weights come from export_weights.py.
+ */
+public class JavaCnnBackend implements ClassifierBackend {
+
+    private static final int MAGIC = 0x57434445; // "EDCW" little-endian
+    private static final int VERSION = 1;
+
+    private static final float BN_EPS = 1e-5f;
+    static final float LEAKY_SLOPE = 0.01f;
+    static final int KERNEL = 3;
+    static final int STRIDE = 2;
+
+    // SGEMM blocking: output columns per fork-join task and reduction depth per pass
+    static final int COLUMN_BLOCK = 256;
+    static final int DEPTH_BLOCK = 128;
+
+    // nn.Sequential indices of the conv and batch norm layers in CNN.conv_layers
+    private static final int[] CONV_INDICES = {0, 4, 8};
+    private static final int[] BN_INDICES = {1, 5, 9};
+
+    private final ConvBlock[] blocks;
+    private final float[] fc1Weight, fc1Bias, fc2Weight, fc2Bias;
+    private final int hiddenSize, flatSize, numClasses;
+    private final ForkJoinPool pool;
+
+    // Scratch buffers sized for the largest layer, reused across calls
+    private final float[] image, columns, convOut, activations, hidden;
+
+    private JavaCnnBackend(Map<String, WeightTensor> weights, int inputSize, ForkJoinPool pool) throws IOException {
+        this.pool = pool;
+
+        blocks = new ConvBlock[CONV_INDICES.length];
+        int channels = 3;
+        int size = inputSize;
+        int maxColumns = 0, maxConvOut = 0, maxActivations = 3 * inputSize * inputSize;
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = ConvBlock.fuse(weights, "conv_layers." + CONV_INDICES[i], "conv_layers." + BN_INDICES[i],
+                    channels, size);
+            ConvBlock block = blocks[i];
+            maxColumns = Math.max(maxColumns, block.depth * block.convSize * block.convSize);
+            maxConvOut = Math.max(maxConvOut, block.outChannels * block.convSize * block.convSize);
+            maxActivations = Math.max(maxActivations, block.outChannels * block.poolSize * block.poolSize);
+            channels = block.outChannels;
+            size = block.poolSize;
+        }
+        flatSize = channels * size * size;
+
+        WeightTensor fc1W = weights.get("dense_layers.1.weight");
+        WeightTensor fc2W = weights.get("dense_layers.4.weight");
+        if (fc1W == null || fc2W == null) {
+            throw new IOException("Missing dense layer weights");
+        }
+        fc1W.expectShape(fc1W.shape[0], flatSize);
+        hiddenSize = fc1W.shape[0];
+        fc2W.expectShape(fc2W.shape[0], hiddenSize);
+        numClasses = fc2W.shape[0];
+
+        fc1Weight = fc1W.data;
+        fc1Bias = require(weights, "dense_layers.1.bias").expectShape(hiddenSize).data;
+        fc2Weight = fc2W.data;
+        fc2Bias = require(weights, "dense_layers.4.bias").expectShape(numClasses).data;
+
+        image = new float[3 * inputSize * inputSize];
+        columns = new float[maxColumns];
+        convOut = new float[maxConvOut];
+        activations = new float[maxActivations];
+        hidden = new float[hiddenSize];
+    }
+
+    /**
+     * Reads weights written by export_weights.py and fuses batch norm into the convolutions.
+     */
+    public static JavaCnnBackend load(InputStream in, int inputSize) throws IOException {
+        return load(in, inputSize, ForkJoinPool.commonPool());
+    }
+
+    public static JavaCnnBackend load(InputStream in, int inputSize, ForkJoinPool pool) throws IOException {
+        return new JavaCnnBackend(readWeights(in), inputSize, pool);
+    }
+
+    public int getNumClasses() {
+        return numClasses;
+    }
+
+    @Override
+    public synchronized float[] forward(FloatBuffer input, int batchSize) {
+        int imageLength = image.length;
+        float[] logits = new float[batchSize * numClasses];
+
+        for (int n = 0; n < batchSize; n++) {
+            FloatBuffer view = input.duplicate();
+            view.position(n * imageLength);
+            view.get(image, 0, imageLength);
+            forwardImage(image, logits, n * numClasses, null);
+        }
+        return logits;
+    }
+
+    /**
+     * Runs one normalized NCHW image and writes its logits at logits[offset].
+     * The observer, when given, sees the input of every weight layer (see ActivationObserver).
+     */
+    synchronized void forwardImage(float[] x, float[] logits, int offset, ActivationObserver observer) {
+        int point = 0;
+        if (observer != null) {
+            observer.observe(point++, x, x.length);
+        }
+
+        for (ConvBlock block : blocks) {
+            block.forward(x, columns, convOut, activations, pool);
+            x = activations;
+            if (observer != null) {
+                observer.observe(point++, activations, block.outChannels * block.poolSize * block.poolSize);
+            }
+        }
+
+        dense(activations, flatSize, fc1Weight, fc1Bias, hidden, 0, hiddenSize, true);
+        if (observer != null) {
+            observer.observe(point, hidden, hiddenSize);
+        }
+        dense(hidden, hiddenSize, fc2Weight, fc2Bias, logits, offset, numClasses, false);
+    }
+
+    ConvBlock[] getBlocks() {
+        return blocks;
+    }
+
+    float[] getFc1Weight() {
+        return fc1Weight;
+    }
+
+    float[] getFc1Bias() {
+        return fc1Bias;
+    }
+
+    float[] getFc2Weight() {
+        return fc2Weight;
+    }
+
+    float[] getFc2Bias() {
+        return fc2Bias;
+    }
+
+    int getHiddenSize() {
+        return hiddenSize;
+    }
+
+    int getFlatSize() {
+        return flatSize;
+    }
+
+    /**
+     * Receives the input of each weight layer during forwardImage: point 0 is the image,
+     * 1-3 the outputs of the conv blocks, 4 the hidden dense activations.
+     */
+    interface ActivationObserver {
+        int POINTS = 5;
+
+        void observe(int point, float[] values, int length);
+    }
+
+    private static void dense(float[] x, int inFeatures, float[] weight, float[] bias,
+                              float[] out, int outOffset, int outFeatures, boolean relu) {
+        for (int o = 0; o < outFeatures; o++) {
+            float sum = bias[o];
+            int row = o * inFeatures;
+            for (int i = 0; i < inFeatures; i++) {
+                sum += weight[row + i] * x[i];
+            }
+            out[outOffset + o] = relu && sum < 0f ? 0f : sum;
+        }
+    }
+
+    /**
+     * Copies each stride-2 3x3 receptive field into a column, producing a
+     * [channels * 9, outSize * outSize] row-major matrix.
+     */
+    static void im2col(float[] x, int channels, int size, float[] columns, int outSize) {
+        int outArea = outSize * outSize;
+        int row = 0;
+        for (int c = 0; c < channels; c++) {
+            int channelBase = c * size * size;
+            for (int ky = 0; ky < KERNEL; ky++) {
+                for (int kx = 0; kx < KERNEL; kx++, row++) {
+                    int dst = row * outArea;
+                    for (int oy = 0; oy < outSize; oy++) {
+                        int src = channelBase + (oy * STRIDE + ky) * size + kx;
+                        for (int ox = 0; ox < outSize; ox++) {
+                            columns[dst++] = x[src + ox * STRIDE];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * c[m, n] = a[m, k] * b[k, n] for row-major matrices, blocked over k so each pass over a
+     * column block of b stays in cache. Column blocks run as parallel fork-join tasks.
+     */
+    static void sgemm(float[] a, float[] b, float[] c, int m, int n, int k, ForkJoinPool pool) {
+        if (n <= COLUMN_BLOCK || pool == null) {
+            sgemmBlock(a, b, c, m, n, k, 0, n);
+        } else {
+            pool.invoke(new GemmTask(a, b, c, m, n, k, 0, n));
+        }
+    }
+
+    private static void sgemmBlock(float[] a, float[] b, float[] c, int m, int n, int k, int colStart, int colEnd) {
+        for (int i = 0; i < m; i++) {
+            int rowC = i * n;
+            for (int j = colStart; j < colEnd; j++) {
+                c[rowC + j] = 0f;
+            }
+        }
+
+        for (int kb = 0; kb < k; kb += DEPTH_BLOCK) {
+            int kEnd = Math.min(kb + DEPTH_BLOCK, k);
+            for (int i = 0; i < m; i++) {
+                int rowA = i * k;
+                int rowC = i * n;
+                for (int p = kb; p < kEnd; p++) {
+                    float aip = a[rowA + p];
+                    int rowB = p * n;
+                    for (int j = colStart; j < colEnd; j++) {
+                        c[rowC + j] += aip * b[rowB + j];
+                    }
+                }
+            }
+        }
+    }
+
+    private static class GemmTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final float[] a, b, c;
+        private final int m, n, k, colStart, colEnd;
+
+        GemmTask(float[] a, float[] b, float[] c, int m, int n, int k, int colStart, int colEnd) {
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.m = m;
+            this.n = n;
+            this.k = k;
+            this.colStart = colStart;
+            this.colEnd = colEnd;
+        }
+
+        @Override
+        protected void compute() {
+            if (colEnd - colStart <= COLUMN_BLOCK) {
+                sgemmBlock(a, b, c, m, n, k, colStart, colEnd);
+                return;
+            }
+            // Split on a block boundary; at least two blocks remain, so both halves are non-empty
+            int blocks = (colEnd - colStart + COLUMN_BLOCK - 1) / COLUMN_BLOCK;
+            int mid = colStart + (blocks / 2) * COLUMN_BLOCK;
+            invokeAll(new GemmTask(a, b, c, m, n, k, colStart, mid),
+                    new GemmTask(a, b, c, m, n, k, mid, colEnd));
+        }
+    }
+
+    /** Conv-BN (folded)-LeakyReLU-MaxPool block. */
+    static class ConvBlock {
+        final int inChannels, outChannels, inSize, convSize, poolSize, depth;
+        final float[] weight; // [outChannels, inChannels * 9]
+        final float[] bias;
+
+        ConvBlock(int inChannels, int outChannels, int inSize, float[] weight, float[] bias) {
+            this.inChannels = inChannels;
+            this.outChannels = outChannels;
+            this.inSize = inSize;
+            this.convSize = (inSize - KERNEL) / STRIDE + 1;
+            this.poolSize = convSize / 2;
+            this.depth = inChannels * KERNEL * KERNEL;
+            this.weight = weight;
+            this.bias = bias;
+        }
+
+        static ConvBlock fuse(Map<String, WeightTensor> weights, String conv, String bn,
+                              int inChannels, int inSize) throws IOException {
+            WeightTensor w = require(weights, conv + ".weight");
+            int outChannels = w.shape[0];
+            w.expectShape(outChannels, inChannels, KERNEL, KERNEL);
+            float[] convBias = require(weights, conv + ".bias").expectShape(outChannels).data;
+            float[] gamma = require(weights, bn + ".weight").expectShape(outChannels).data;
+            float[] beta = require(weights, bn + ".bias").expectShape(outChannels).data;
+            float[] mean = require(weights, bn + ".running_mean").expectShape(outChannels).data;
+            float[] var = require(weights, bn + ".running_var").expectShape(outChannels).data;
+
+            int depth = inChannels * KERNEL * KERNEL;
+            float[] fusedWeight = new float[outChannels * depth];
+            float[] fusedBias = new float[outChannels];
+            for (int o = 0; o < outChannels; o++) {
+                float scale = gamma[o] / (float) Math.sqrt(var[o] + BN_EPS);
+                for (int d = 0; d < depth; d++) {
+                    fusedWeight[o * depth + d] = w.data[o * depth + d] * scale;
+                }
+                fusedBias[o] = (convBias[o] - mean[o]) * scale + beta[o];
+            }
+            return new ConvBlock(inChannels, outChannels, inSize, fusedWeight, fusedBias);
+        }
+
+        void forward(float[] x, float[] columns, float[] convOut, float[] out, ForkJoinPool pool) {
+            int area = convSize * convSize;
+            im2col(x, inChannels, inSize, columns, convSize);
+            sgemm(weight, columns, convOut, outChannels, area, depth, pool);
+
+            // Bias and LeakyReLU, then 2x2 max pooling (floor mode)
+            for (int o = 0; o < outChannels; o++) {
+                float b = bias[o];
+                int base = o * area;
+                for (int i = base; i < base + area; i++) {
+                    float v = convOut[i] + b;
+                    convOut[i] = v < 0f ? v * LEAKY_SLOPE : v;
+                }
+
+                int outBase = o * poolSize * poolSize;
+                for (int py = 0; py < poolSize; py++) {
+                    int r0 = base + (py * 2) * convSize;
+                    int r1 = r0 + convSize;
+                    for (int px = 0; px < poolSize; px++) {
+                        int cx = px * 2;
+                        float m = Math.max(Math.max(convOut[r0 + cx], convOut[r0 + cx + 1]),
+                                Math.max(convOut[r1 + cx], convOut[r1 + cx + 1]));
+                        out[outBase + py * poolSize + px] = m;
+                    }
+                }
+            }
+        }
+    }
+
+    /** Named float tensor read from the weights file. */
+    static class WeightTensor {
+        final String name;
+        final int[] shape;
+        final float[] data;
+
+        WeightTensor(String name, int[] shape, float[] data) {
+            this.name = name;
+            this.shape = shape;
+            this.data = data;
+        }
+
+        WeightTensor expectShape(int... expected) throws IOException {
+            if (!Arrays.equals(shape, expected)) {
+                throw new IOException("Unexpected shape for " + name + ": "
+                        + Arrays.toString(shape) + ", expected " + Arrays.toString(expected));
+            }
+            return this;
+        }
+    }
+
+    private static WeightTensor require(Map<String, WeightTensor> weights, String name) throws IOException {
+        WeightTensor tensor = weights.get(name);
+        if (tensor == null) {
+            throw new IOException("Missing weight: " + name);
+        }
+        return tensor;
+    }
+
+    /**
+     * Format (little-endian): int magic, int version, int count, then per tensor:
+     * int nameLength, UTF-8 name, int rank, int[rank] shape, float32[product(shape)] data.
+     */
+    static Map<String, WeightTensor> readWeights(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] chunk = new byte[64 * 1024];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            bytes.write(chunk, 0, read);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a classifier weights file");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported weights version: " + version);
+            }
+
+            int count = buffer.getInt();
+            Map<String, WeightTensor> weights = new HashMap<>();
+            for (int t = 0; t < count; t++) {
+                byte[] nameBytes = new byte[buffer.getInt()];
+                buffer.get(nameBytes);
+                String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+                int[] shape = new int[buffer.getInt()];
+                int length = 1;
+                for (int d = 0; d < shape.length; d++) {
+                    shape[d] = buffer.getInt();
+                    length *= shape[d];
+                }
+
+                float[] data = new float[length];
+                buffer.asFloatBuffer().get(data);
+                buffer.position(buffer.position() + length * 4);
+                weights.put(name, new WeightTensor(name, shape, data));
+            }
+            return weights;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated weights file", e);
+        }
+    }
+}
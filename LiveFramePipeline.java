@@ -0,0 +1,268 @@
+package com.example.eddc;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Continuous classification of camera frames with a keep-only-latest policy.
+ *
+ * Frames are written straight into one of three preallocated input tensors: one being filled
+ * by the producer, one waiting, one being classified. A frame that arrives while another is
+ * still waiting replaces it, and the replaced one counts as dropped, so at most one frame
+ * queues behind the single inference in flight and results never lag behind the camera. No
+ * buffers are allocated per frame apart from the logits array the backend returns.
+ *
+ * Plain Java: the camera screen feeds it CameraX frames, SyntheticFrameSource feeds it on a JVM.
+ */
+public class LiveFramePipeline {
+
+    private static final int SLOTS = 3;
+    private static final int LATENCY_SAMPLES = 256;
+    private static final int FPS_WINDOW = 32;
+
+    /** Fills one input tensor from a frame; called on the producer's thread. */
+    public interface FrameWriter {
+        /** Writes tensorLength normalized NCHW floats starting at absolute index 0 of out. */
+        void write(FloatBuffer out);
+    }
+
+    /** Called on the pipeline thread; probabilities is reused for the next result. */
+    public interface Listener {
+        void onResult(float[] probabilities, long frameTimestampNanos);
+
+        void onError(RuntimeException e);
+    }
+
+    /** Counters and timings since start(). */
+    public static class Stats {
+        public final long offered;
+        public final long processed;
+        public final long dropped;
+        /** Results per second over the most recent results. */
+        public final double fps;
+        /** {p50, p99} from frame arrival to result, in milliseconds; zeros before any result. */
+        public final double[] latencyMillis;
+        /** {p50, p99} of the forward pass alone, in milliseconds. */
+        public final double[] inferenceMillis;
+
+        Stats(long offered, long processed, long dropped, double fps,
+              double[] latencyMillis, double[] inferenceMillis) {
+            this.offered = offered;
+            this.processed = processed;
+            this.dropped = dropped;
+            this.fps = fps;
+            this.latencyMillis = latencyMillis;
+            this.inferenceMillis = inferenceMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%.1f fps, %d/%d frames dropped, latency p50 %.0f ms p99 %.0f ms, inference p50 %.0f ms",
+                    fps, dropped, offered, latencyMillis[0], latencyMillis[1], inferenceMillis[0]);
+        }
+    }
+
+    private static class Slot {
+        final FloatBuffer input;
+        long timestampNanos;
+        long arrivalNanos;
+
+        Slot(int tensorLength) {
+            input = ByteBuffer.allocateDirect(tensorLength * 4)
+                    .order(ByteOrder.nativeOrder())
+                    .asFloatBuffer();
+        }
+    }
+
+    private final ClassifierBackend backend;
+    private final Listener listener;
+    private final float[] probabilities;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Slot> free = new ArrayDeque<>(SLOTS);
+    private Slot pending;
+    private boolean running;
+    // The current loop's thread; a loop whose thread is no longer this one exits
+    private Thread worker;
+
+    // Guarded by lock
+    private long offered;
+    private long processed;
+    private long dropped;
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private final long[] inferences = new long[LATENCY_SAMPLES];
+    private final long[] resultTimes = new long[FPS_WINDOW];
+
+    public LiveFramePipeline(ClassifierBackend backend, int tensorLength, int numClasses, Listener listener) {
+        this.backend = backend;
+        this.listener = listener;
+        this.probabilities = new float[numClasses];
+        for (int i = 0; i < SLOTS; i++) {
+            free.add(new Slot(tensorLength));
+        }
+    }
+
+    public void start() {
+        synchronized (lock) {
+            if (running) {
+                return;
+            }
+            running = true;
+            offered = processed = dropped = 0;
+            // After a stop() from a listener the previous loop may still be finishing its result
+            Thread previous = worker;
+            worker = new Thread(() -> runLoop(previous), "live-inference");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /** Stops after the inference in flight, if any; the waiting frame is discarded. */
+    public void stop() {
+        Thread stopping;
+        synchronized (lock) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            if (pending != null) {
+                free.add(pending);
+                pending = null;
+            }
+            stopping = worker;
+            lock.notifyAll();
+        }
+        if (stopping == Thread.currentThread()) {
+            return; // Called from a listener; the loop exits after this result
+        }
+        try {
+            stopping.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Offers a frame without blocking. The writer runs on the calling thread into a free input
+     * tensor, and the frame then replaces any frame still waiting.
+     *
+     * @return false when the frame was not taken: the pipeline is stopped, or every buffer is busy
+     *         because several producers offered at once
+     */
+    public boolean offer(long timestampNanos, FrameWriter writer) {
+        long arrival = System.nanoTime();
+        Slot slot;
+        synchronized (lock) {
+            if (!running) {
+                return false;
+            }
+            offered++;
+            slot = free.poll();
+            if (slot == null) {
+                dropped++;
+                return false;
+            }
+        }
+
+        writer.write(slot.input);
+        slot.timestampNanos = timestampNanos;
+        slot.arrivalNanos = arrival;
+
+        synchronized (lock) {
+            if (!running) {
+                free.add(slot);
+                return false;
+            }
+            if (pending != null) {
+                free.add(pending);
+                dropped++;
+            }
+            pending = slot;
+            lock.notifyAll();
+        }
+        return true;
+    }
+
+    public Stats getStats() {
+        synchronized (lock) {
+            int samples = (int) Math.min(processed, LATENCY_SAMPLES);
+            double fps = 0;
+            int window = (int) Math.min(processed, FPS_WINDOW);
+            if (window > 1) {
+                long newest = resultTimes[(int) ((processed - 1) % FPS_WINDOW)];
+                long oldest = resultTimes[(int) ((processed - window) % FPS_WINDOW)];
+                fps = (window - 1) * 1e9 / Math.max(1, newest - oldest);
+            }
+            return new Stats(offered, processed, dropped, fps,
+                    percentilesMillis(latencies, samples), percentilesMillis(inferences, samples));
+        }
+    }
+
+    private void runLoop(Thread previous) {
+        // Keeps at most one inference in flight across a stop() and start() from a listener
+        if (previous != null) {
+            try {
+                previous.join();
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+        Thread self = Thread.currentThread();
+        while (true) {
+            Slot slot;
+            synchronized (lock) {
+                while (running && worker == self && pending == null) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!running || worker != self) {
+                    return;
+                }
+                slot = pending;
+                pending = null;
+            }
+
+            try {
+                long start = System.nanoTime();
+                float[] logits = backend.forward(slot.input, 1);
+                long end = System.nanoTime();
+                ClassScores.softmax(logits, probabilities);
+
+                synchronized (lock) {
+                    int index = (int) (processed % LATENCY_SAMPLES);
+                    latencies[index] = end - slot.arrivalNanos;
+                    inferences[index] = end - start;
+                    resultTimes[(int) (processed % FPS_WINDOW)] = end;
+                    processed++;
+                }
+                listener.onResult(probabilities, slot.timestampNanos);
+            } catch (RuntimeException e) {
+                listener.onError(e);
+            } finally {
+                synchronized (lock) {
+                    free.add(slot);
+                }
+            }
+        }
+    }
+
+    private static double[] percentilesMillis(long[] ring, int samples) {
+        if (samples == 0) {
+            return new double[]{0, 0};
+        }
+        long[] sorted = Arrays.copyOf(ring, samples);
+        Arrays.sort(sorted);
+        return new double[]{
+                sorted[Math.max(0, (int) Math.ceil(0.50 * samples) - 1)] / 1e6,
+                sorted[Math.max(0, (int) Math.ceil(0.99 * samples) - 1)] / 1e6
+        };
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.eddc;
+
+import android.Manifest;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.util.Log;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+import androidx.camera.core.Preview;
+import androidx.camera.lifecycle.ProcessCameraProvider;
+import androidx.camera.view.PreviewView;
+import androidx.core.content.ContextCompat;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Live screening: classifies camera frames continuously through LiveFramePipeline and shows
+ * the latest result with the pipeline's frame rate, drop count and latency.
+ * Frames are analyzed in YUV_420_888 and written straight into the pipeline's input tensors
+ * by YuvTensorConverter, without an ARGB copy or Bitmap.
+ */
+public class LiveScreening extends AppCompatActivity {
+
+    private static final String TAG = "LiveScreening";
+    private static final int INPUT_SIZE = ModelRegistry.INPUT_SIZE;
+
+    // Results refresh the text at most this often, whatever the inference rate
+    private static final long UI_REFRESH_NANOS = 200_000_000L;
+
+    private PreviewView previewView;
+    private TextView txtResult;
+    private TextView txtStats;
+
+    private ModelRegistry modelRegistry;
+    private LiveFramePipeline pipeline;
+    private ProcessCameraProvider cameraProvider;
+    private final ExecutorService analysisExecutor = Executors.newSingleThreadExecutor();
+    private final YuvTensorConverter converter = new YuvTensorConverter(INPUT_SIZE);
+
+    private volatile long lastUiUpdateNanos;
+
+    private final ActivityResultLauncher<String> permissionLauncher =
+            registerForActivityResult(new ActivityResultContracts.RequestPermission(), granted -> {
+                if (granted) {
+                    startCamera();
+                } else {
+                    Toast.makeText(this, R.string.camera_permission_required, Toast.LENGTH_LONG).show();
+                    finish();
+                }
+            });
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_live_screening);
+
+        previewView = findViewById(R.id.previewView);
+        txtResult = findViewById(R.id.txtLiveResult);
+        txtStats = findViewById(R.id.txtLiveStats);
+        modelRegistry = ModelRegistry.getInstance(this);
+
+        txtResult.setText(R.string.loading_model);
+        try {
+            InferenceScheduler.getInstance().submitIo(null, InferenceScheduler.Stage.MODEL_LOAD, () -> {
+                try {
+                    modelRegistry.ensureLoaded();
+                    runOnUiThread(this::onModelReady);
+                } catch (IOException | RuntimeException e) {
+                    Log.e(TAG, "Error loading model", e);
+                    runOnUiThread(() -> txtResult.setText(getString(R.string.model_load_error, e.getMessage())));
+                }
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Scheduler busy", e);
+            Toast.makeText(this, R.string.busy_try_again, Toast.LENGTH_SHORT).show();
+            finish();
+        }
+    }
+
+    private void onModelReady() {
+        if (isFinishing()) {
+            return;
+        }
+        pipeline = new LiveFramePipeline(modelRegistry.getBackend(), converter.getTensorLength(),
+                ModelRegistry.CLASS_NAMES.length, new LiveFramePipeline.Listener() {
+                    @Override
+                    public void onResult(float[] probabilities, long frameTimestampNanos) {
+                        showResult(probabilities);
+                    }
+
+                    @Override
+                    public void onError(RuntimeException e) {
+                        Log.e(TAG, "Live inference failed", e);
+                    }
+                });
+        pipeline.start();
+        txtResult.setText(R.string.point_camera_at_eye);
+
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED) {
+            startCamera();
+        } else {
+            permissionLauncher.launch(Manifest.permission.CAMERA);
+        }
+    }
+
+    private void startCamera() {
+        ListenableFuture<ProcessCameraProvider> future = ProcessCameraProvider.getInstance(this);
+        future.addListener(() -> {
+            try {
+                cameraProvider = future.get();
+            } catch (ExecutionException | InterruptedException e) {
+                Log.e(TAG, "Camera unavailable", e);
+                Toast.makeText(this, R.string.camera_unavailable, Toast.LENGTH_SHORT).show();
+                return;
+            }
+
+            Preview preview = new Preview.Builder().build();
+            preview.setSurfaceProvider(previewView.getSurfaceProvider());
+
+            // CameraX drops frames while the analyzer is busy; the pipeline drops the rest.
+            // YUV_420_888 is the native analysis format, so CameraX does no conversion either
+            ImageAnalysis analysis = new ImageAnalysis.Builder()
+                    .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                    .setOutputImageFormat(ImageAnalysis.OUTPUT_IMAGE_FORMAT_YUV_420_888)
+                    .build();
+            analysis.setAnalyzer(analysisExecutor, this::analyze);
+
+            cameraProvider.unbindAll();
+            cameraProvider.bindToLifecycle(this, CameraSelector.DEFAULT_BACK_CAMERA, preview, analysis);
+        }, ContextCompat.getMainExecutor(this));
+    }
+
+    // Runs on analysisExecutor
+    private void analyze(ImageProxy image) {
+        try {
+            LiveFramePipeline current = pipeline;
+            if (current != null) {
+                int rotation = image.getImageInfo().getRotationDegrees();
+                current.offer(image.getImageInfo().getTimestamp(), out -> {
+                    ImageProxy.PlaneProxy[] planes = image.getPlanes();
+                    converter.convert(
+                            planes[0].getBuffer(), planes[0].getRowStride(), planes[0].getPixelStride(),
+                            planes[1].getBuffer(), planes[2].getBuffer(),
+                            planes[1].getRowStride(), planes[1].getPixelStride(),
+                            image.getWidth(), image.getHeight(), rotation, out, 0);
+                });
+            }
+        } finally {
+            image.close();
+        }
+    }
+
+    // Runs on the pipeline thread
+    private void showResult(float[] probabilities) {
+        long now = System.nanoTime();
+        if (now - lastUiUpdateNanos < UI_REFRESH_NANOS) {
+            return;
+        }
+        lastUiUpdateNanos = now;
+
+        int best = ClassScores.argMax(probabilities, ModelRegistry.CLASS_NAMES.length);
+        String result = getString(R.string.live_result, ModelRegistry.CLASS_NAMES[best]);
+        String stats = pipeline.getStats().toString();
+        runOnUiThread(() -> {
+            txtResult.setText(result);
+            txtStats.setText(stats);
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (cameraProvider != null) {
+            cameraProvider.unbindAll();
+        }
+        if (pipeline != null) {
+            Log.d(TAG, "Live session: " + pipeline.getStats());
+            pipeline.stop();
+        }
+        analysisExecutor.shutdown();
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.eddc;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * On-device copy of every user's detection history, read by History without touching the network.
+ * Rows are keyed by the database push key, so ordering by id is chronological. New detections
+ * are inserted as pending and HistorySyncEngine marks them synced once they reach the server.
+ */
+public class LocalHistoryStore extends SQLiteOpenHelper {
+
+    private static final String TAG = "LocalHistoryStore";
+    private static final String DATABASE_NAME = "eddc_history.db";
+    private static final int DATABASE_VERSION = 1;
+
+    private static final String TABLE_DETECTIONS = "detections";
+    private static final String TABLE_CURSORS = "sync_cursors";
+
+    private static volatile LocalHistoryStore instance;
+
+    private LocalHistoryStore(Context context) {
+        super(context.getApplicationContext(), DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    public static LocalHistoryStore getInstance(Context context) {
+        if (instance == null) {
+            synchronized (LocalHistoryStore.class) {
+                if (instance == null) {
+                    instance = new LocalHistoryStore(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_DETECTIONS + " ("
+                + "id TEXT PRIMARY KEY, "
+                + "user_id TEXT NOT NULL, "
+                + "record TEXT NOT NULL, "
+                + "pending INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("CREATE INDEX detections_user_id ON " + TABLE_DETECTIONS + " (user_id, id)");
+        db.execSQL("CREATE TABLE " + TABLE_CURSORS + " ("
+                + "user_id TEXT PRIMARY KEY, "
+                + "last_pulled_key TEXT)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // No older schema exists yet
+    }
+
+    /** Stores a detection made on this device; it stays pending until pushed. Returns false if the insert failed. */
+    public boolean insertPending(String userId, DetectionRecord record) {
+        ContentValues values = new ContentValues();
+        values.put("id", record.id);
+        values.put("user_id", userId);
+        values.put("record", record.toJson());
+        values.put("pending", 1);
+        return getWritableDatabase().insertWithOnConflict(
+                TABLE_DETECTIONS, null, values, SQLiteDatabase.CONFLICT_REPLACE) != -1;
+    }
+
+    /** Up to limit records older than beforeId (or the newest ones when null), newest first. */
+    public List<DetectionRecord> loadPage(String userId, String beforeId, int limit) {
+        if (beforeId == null) {
+            return query("user_id = ?", new String[]{userId}, "id DESC", limit);
+        }
+        return query("user_id = ? AND id < ?", new String[]{userId, beforeId}, "id DESC", limit);
+    }
+
+    /** All records newer than afterId, newest first. */
+    public List<DetectionRecord> loadNewer(String userId, String afterId) {
+        if (afterId == null) {
+            return query("user_id = ?", new String[]{userId}, "id DESC", -1);
+        }
+        return query("user_id = ? AND id > ?", new String[]{userId, afterId}, "id DESC", -1);
+    }
+
+    /** Oldest pending records first, so they reach the server in creation order. */
+    public List<DetectionRecord> loadPending(String userId, int limit) {
+        return query("user_id = ? AND pending = 1", new String[]{userId}, "id ASC", limit);
+    }
+
+    public void markSynced(List<String> ids) {
+        SQLiteDatabase db = getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put("pending", 0);
+        db.beginTransaction();
+        try {
+            for (String id : ids) {
+                db.update(TABLE_DETECTIONS, values, "id = ?", new String[]{id});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Stores records pulled from the server and advances the user's pull cursor in one
+     * transaction. Local rows that are still pending win over the server copy.
+     */
+    public void upsertPulled(String userId, List<DetectionRecord> records, String lastPulledKey) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (DetectionRecord record : records) {
+                ContentValues values = new ContentValues();
+                values.put("id", record.id);
+                values.put("user_id", userId);
+                values.put("record", record.toJson());
+                values.put("pending", 0);
+                if (db.insertWithOnConflict(TABLE_DETECTIONS, null, values, SQLiteDatabase.CONFLICT_IGNORE) == -1) {
+                    db.update(TABLE_DETECTIONS, values, "id = ? AND pending = 0", new String[]{record.id});
+                }
+            }
+
+            ContentValues cursor = new ContentValues();
+            cursor.put("user_id", userId);
+            cursor.put("last_pulled_key", lastPulledKey);
+            db.insertWithOnConflict(TABLE_CURSORS, null, cursor, SQLiteDatabase.CONFLICT_REPLACE);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /** Push key of the newest record pulled from the server, or null before the first pull. */
+    public String getLastPulledKey(String userId) {
+        try (Cursor cursor = getReadableDatabase().query(TABLE_CURSORS, new String[]{"last_pulled_key"},
+                "user_id = ?", new String[]{userId}, null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+
+    private List<DetectionRecord> query(String selection, String[] args, String orderBy, int limit) {
+        List<DetectionRecord> records = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(TABLE_DETECTIONS, new String[]{"id", "record"},
+                selection, args, null, null, orderBy, limit > 0 ? String.valueOf(limit) : null)) {
+            while (cursor.moveToNext()) {
+                try {
+                    DetectionRecord record = DetectionRecord.fromJson(cursor.getString(0), cursor.getString(1));
+                    if (record != null) {
+                        records.add(record);
+                    }
+                } catch (JSONException e) {
+                    Log.e(TAG, "Skipping corrupt record " + cursor.getString(0), e);
+                }
+            }
+        }
+        return records;
+    }
+}
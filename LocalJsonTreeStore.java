@@ -0,0 +1,412 @@
+package com.example.eddc;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process RealtimeStore over a JSON tree held in memory, for running the data flows on a
+ * plain JVM without network access (see DataLoadHarness). It follows the realtime database
+ * semantics the app relies on: keys order like orderByKey() (32-bit integer keys first,
+ * numerically), null and empty objects delete, numbers read back as Long or Double, multi-path
+ * updates and setIfAbsent are atomic, and push keys sort chronologically.
+ *
+ * Each instance is one client connection that counts its requests and the JSON bytes it sends
+ * and receives, a close estimate of the database wire traffic. connect() opens another
+ * connection to the same tree.
+ */
+public class LocalJsonTreeStore implements RealtimeStore {
+
+    private static final String PUSH_CHARS = "-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz";
+
+    // Integer-like keys first in numeric order, then the rest lexicographically
+    private static final Comparator<String> KEY_ORDER = (a, b) -> {
+        Integer ia = parseIntKey(a);
+        Integer ib = parseIntKey(b);
+        if (ia != null && ib != null) {
+            return ia.compareTo(ib);
+        }
+        if (ia != null) {
+            return -1;
+        }
+        if (ib != null) {
+            return 1;
+        }
+        return a.compareTo(b);
+    };
+
+    private static final Random pushRandom = new SecureRandom();
+    private static long lastPushMillis;
+    private static final int[] lastPushRandom = new int[12];
+
+    private final TreeMap<String, Object> root;
+    private final ReadWriteLock lock;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+
+    public LocalJsonTreeStore() {
+        this(new TreeMap<>(KEY_ORDER), new ReentrantReadWriteLock());
+    }
+
+    private LocalJsonTreeStore(TreeMap<String, Object> root, ReadWriteLock lock) {
+        this.root = root;
+        this.lock = lock;
+    }
+
+    /** Opens another connection to the same tree, with its own traffic counters. */
+    public LocalJsonTreeStore connect() {
+        return new LocalJsonTreeStore(root, lock);
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    @Override
+    public Object get(String path) {
+        String[] keys = split(path);
+        Object value;
+        lock.readLock().lock();
+        try {
+            value = copyOut(find(keys));
+        } finally {
+            lock.readLock().unlock();
+        }
+        count(path.length(), value);
+        return value;
+    }
+
+    @Override
+    public LinkedHashMap<String, Object> getChildrenAfter(String path, String afterKey, int limit) {
+        String[] keys = split(path);
+        LinkedHashMap<String, Object> children = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            Object node = find(keys);
+            if (node instanceof TreeMap) {
+                @SuppressWarnings("unchecked")
+                TreeMap<String, Object> map = (TreeMap<String, Object>) node;
+                Map<String, Object> tail = afterKey != null ? map.tailMap(afterKey, false) : map;
+                for (Map.Entry<String, Object> child : tail.entrySet()) {
+                    if (children.size() >= limit) {
+                        break;
+                    }
+                    children.put(child.getKey(), copyOut(child.getValue()));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        count(path.length() + (afterKey != null ? afterKey.length() : 0), children);
+        return children;
+    }
+
+    @Override
+    public void set(String path, Object value) {
+        String[] keys = split(path);
+        Object canonical = canonicalize(value);
+        lock.writeLock().lock();
+        try {
+            write(keys, canonical);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        count(path.length() + jsonLength(canonical), null);
+    }
+
+    @Override
+    public void update(Map<String, Object> values) {
+        Map<String[], Object> writes = new LinkedHashMap<>();
+        long sent = 0;
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            Object canonical = canonicalize(entry.getValue());
+            writes.put(split(entry.getKey()), canonical);
+            sent += entry.getKey().length() + jsonLength(canonical);
+        }
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<String[], Object> write : writes.entrySet()) {
+                write(write.getKey(), write.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        count(sent, null);
+    }
+
+    @Override
+    public boolean setIfAbsent(String path, Object value) {
+        String[] keys = split(path);
+        Object canonical = canonicalize(value);
+        boolean written;
+        lock.writeLock().lock();
+        try {
+            written = find(keys) == null;
+            if (written) {
+                write(keys, canonical);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        count(path.length() + jsonLength(canonical), written);
+        return written;
+    }
+
+    /** Same layout as Firebase push IDs: 8 characters of milliseconds, then 12 random ones. */
+    @Override
+    public String pushKey(String path) {
+        char[] id = new char[20];
+        synchronized (LocalJsonTreeStore.class) {
+            long now = System.currentTimeMillis();
+            if (now == lastPushMillis) {
+                // Same millisecond: increment the random part so keys stay ordered
+                int i = lastPushRandom.length - 1;
+                while (i >= 0 && lastPushRandom[i] == 63) {
+                    lastPushRandom[i--] = 0;
+                }
+                if (i >= 0) {
+                    lastPushRandom[i]++;
+                }
+            } else {
+                lastPushMillis = now;
+                for (int i = 0; i < lastPushRandom.length; i++) {
+                    lastPushRandom[i] = pushRandom.nextInt(64);
+                }
+            }
+            for (int i = 7; i >= 0; i--) {
+                id[i] = PUSH_CHARS.charAt((int) (now % 64));
+                now /= 64;
+            }
+            for (int i = 0; i < lastPushRandom.length; i++) {
+                id[8 + i] = PUSH_CHARS.charAt(lastPushRandom[i]);
+            }
+        }
+        return new String(id);
+    }
+
+    @Override
+    public void addConnectedListener(Runnable listener) {
+        // Always connected
+    }
+
+    /** The whole tree as compact JSON, e.g. to inspect or archive a harness run. */
+    public String toJson() {
+        StringBuilder out = new StringBuilder();
+        lock.readLock().lock();
+        try {
+            writeJson(root, out);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return out.toString();
+    }
+
+    private void count(long sent, Object response) {
+        requests.incrementAndGet();
+        bytesSent.addAndGet(sent);
+        bytesReceived.addAndGet(jsonLength(response));
+    }
+
+    private Object find(String[] keys) {
+        Object node = root;
+        for (String key : keys) {
+            if (!(node instanceof TreeMap)) {
+                return null;
+            }
+            node = ((TreeMap<?, ?>) node).get(key);
+        }
+        return node;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void write(String[] keys, Object value) {
+        if (keys.length == 0) {
+            root.clear();
+            if (value instanceof TreeMap) {
+                root.putAll((TreeMap<String, Object>) value);
+            }
+            return;
+        }
+
+        // Walk down, replacing scalars on the way with objects
+        List<TreeMap<String, Object>> parents = new ArrayList<>(keys.length);
+        TreeMap<String, Object> node = root;
+        for (int i = 0; i < keys.length - 1; i++) {
+            parents.add(node);
+            Object child = node.get(keys[i]);
+            if (!(child instanceof TreeMap)) {
+                if (value == null) {
+                    return; // Nothing to delete
+                }
+                child = new TreeMap<String, Object>(KEY_ORDER);
+                node.put(keys[i], child);
+            }
+            node = (TreeMap<String, Object>) child;
+        }
+        parents.add(node);
+
+        String last = keys[keys.length - 1];
+        if (value != null) {
+            node.put(last, value);
+            return;
+        }
+        node.remove(last);
+        // Objects left empty disappear, as in the realtime database
+        for (int i = keys.length - 1; i > 0 && parents.get(i).isEmpty(); i--) {
+            parents.get(i - 1).remove(keys[i - 1]);
+        }
+    }
+
+    private static String[] split(String path) {
+        String trimmed = path;
+        while (trimmed.startsWith("/")) {
+            trimmed = trimmed.substring(1);
+        }
+        while (trimmed.endsWith("/")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        if (trimmed.isEmpty()) {
+            return new String[0];
+        }
+        String[] keys = trimmed.split("/");
+        for (String key : keys) {
+            checkKey(key, path);
+        }
+        return keys;
+    }
+
+    private static void checkKey(String key, String path) {
+        if (key.isEmpty()) {
+            throw new IllegalArgumentException("Empty key in " + path);
+        }
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c == '.' || c == '#' || c == '$' || c == '[' || c == ']' || c < 0x20 || c == 0x7F) {
+                throw new IllegalArgumentException("Invalid key '" + key + "' in " + path);
+            }
+        }
+    }
+
+    // Deep copy into the stored form; returns null for values that delete
+    private static Object canonicalize(Object value) {
+        if (value == null || value instanceof String || value instanceof Boolean
+                || value instanceof Long || value instanceof Double) {
+            return value;
+        }
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Float) {
+            return ((Float) value).doubleValue();
+        }
+        if (value instanceof Map) {
+            TreeMap<String, Object> map = new TreeMap<>(KEY_ORDER);
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                String key = String.valueOf(entry.getKey());
+                checkKey(key, key);
+                Object child = canonicalize(entry.getValue());
+                if (child != null) {
+                    map.put(key, child);
+                }
+            }
+            return map.isEmpty() ? null : map;
+        }
+        throw new IllegalArgumentException("Unsupported value type " + value.getClass().getName());
+    }
+
+    // Maps are handed out as HashMaps, like DataSnapshot.getValue(), so callers cannot alias the tree
+    private static Object copyOut(Object node) {
+        if (!(node instanceof TreeMap)) {
+            return node;
+        }
+        Map<String, Object> copy = new HashMap<>();
+        for (Map.Entry<?, ?> entry : ((TreeMap<?, ?>) node).entrySet()) {
+            copy.put((String) entry.getKey(), copyOut(entry.getValue()));
+        }
+        return copy;
+    }
+
+    private static Integer parseIntKey(String key) {
+        int length = key.length();
+        if (length == 0 || length > 11) {
+            return null;
+        }
+        int start = key.charAt(0) == '-' ? 1 : 0;
+        if (start == length || (key.charAt(start) == '0' && length - start > 1)) {
+            return null;
+        }
+        for (int i = start; i < length; i++) {
+            if (key.charAt(i) < '0' || key.charAt(i) > '9') {
+                return null;
+            }
+        }
+        long value = Long.parseLong(key);
+        return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE ? (int) value : null;
+    }
+
+    private static long jsonLength(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        StringBuilder out = new StringBuilder();
+        writeJson(value, out);
+        return out.toString().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void writeJson(Object value, StringBuilder out) {
+        if (value instanceof Map) {
+            out.append('{');
+            Iterator<? extends Map.Entry<?, ?>> it = ((Map<?, ?>) value).entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<?, ?> entry = it.next();
+                writeString(String.valueOf(entry.getKey()), out);
+                out.append(':');
+                writeJson(entry.getValue(), out);
+                if (it.hasNext()) {
+                    out.append(',');
+                }
+            }
+            out.append('}');
+        } else if (value instanceof String) {
+            writeString((String) value, out);
+        } else {
+            out.append(value); // Numbers and booleans
+        }
+    }
+
+    private static void writeString(String value, StringBuilder out) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+}
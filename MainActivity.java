@@ -11,11 +11,6 @@ import android.widget.Toast;
 
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.analytics.FirebaseAnalytics;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
 import com.google.firebase.storage.FirebaseStorage;
 import androidx.activity.EdgeToEdge;
 import androidx.appcompat.app.AppCompatActivity;
@@ -23,6 +18,9 @@ import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 import com.google.firebase.FirebaseApp;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import com.google.firebase.appcheck.FirebaseAppCheck;
 import com.google.firebase.appcheck.playintegrity.PlayIntegrityAppCheckProviderFactory;
 
@@ -30,6 +28,8 @@ public class MainActivity extends AppCompatActivity {
     EditText e1, e2;
     Button b1, b2, b3, b4;
     private FirebaseAnalytics mFirebaseAnalytics;
+    // Sign-in waits on the database and on ~100 ms of hashing, so it runs off the main thread
+    private final ExecutorService authExecutor = Executors.newSingleThreadExecutor();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -57,7 +57,9 @@ public class MainActivity extends AppCompatActivity {
 
         mFirebaseAnalytics = FirebaseAnalytics.getInstance(this);
         FirebaseStorage.getInstance();
-        FirebaseDatabase database = FirebaseDatabase.getInstance("https://eye-disease-detection-6a200-default-rtdb.asia-southeast1.firebasedatabase.app");
+
+        // Calibrate the hashing cost now rather than during the first sign-in
+        authExecutor.execute(() -> PasswordHasher.forDevice(getApplicationContext()));
 
         // Forgot Password Button
         b1.setOnClickListener(new View.OnClickListener() {
@@ -109,33 +111,48 @@ public class MainActivity extends AppCompatActivity {
                     return;
                 }
 
-                DatabaseReference usersRef = database.getReference("users");
-
-                usersRef.child(phone).addListenerForSingleValueEvent(new ValueEventListener() {
-                    @Override
-                    public void onDataChange(DataSnapshot dataSnapshot) {
-                        if (dataSnapshot.exists()) {
-                            String storedPassword = dataSnapshot.child("password").getValue(String.class);
-
-                            if (storedPassword != null && storedPassword.equals(password)) {
-                                // Login success
-                                Intent i = new Intent(MainActivity.this, login.class);
-                                startActivity(i);
-                                finish();
-                            } else {
-                                Toast.makeText(MainActivity.this, "Incorrect password", Toast.LENGTH_SHORT).show();
-                            }
-                        } else {
-                            Toast.makeText(MainActivity.this, "User not found", Toast.LENGTH_SHORT).show();
-                        }
-                    }
-
-                    @Override
-                    public void onCancelled(DatabaseError error) {
-                        Log.e("Firebase", "Database error: " + error.getMessage());
-                        Toast.makeText(MainActivity.this, "Failed to retrieve data: " + error.getMessage(), Toast.LENGTH_SHORT).show();
-                    }
-                });
+                authExecutor.execute(() -> signIn(phone, password));
+            }
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        authExecutor.shutdown();
+    }
+
+    // Runs on authExecutor
+    private void signIn(String phone, String password) {
+        AccountRepository accounts = new AccountRepository(
+                FirebaseRealtimeStore.getInstance(), PasswordHasher.forDevice(getApplicationContext()));
+        AccountRepository.SignInResult result;
+        try {
+            result = accounts.signIn(phone, password);
+        } catch (IOException e) {
+            Log.e("Firebase", "Database error: " + e.getMessage());
+            runOnUiThread(() -> Toast.makeText(MainActivity.this,
+                    "Failed to retrieve data: " + e.getMessage(), Toast.LENGTH_SHORT).show());
+            return;
+        }
+
+        runOnUiThread(() -> {
+            if (isFinishing()) {
+                return;
+            }
+            switch (result) {
+                case SUCCESS:
+                    // Login success
+                    Intent i = new Intent(MainActivity.this, login.class);
+                    startActivity(i);
+                    finish();
+                    break;
+                case WRONG_PASSWORD:
+                    Toast.makeText(MainActivity.this, "Incorrect password", Toast.LENGTH_SHORT).show();
+                    break;
+                case NO_SUCH_USER:
+                    Toast.makeText(MainActivity.this, "User not found", Toast.LENGTH_SHORT).show();
+                    break;
             }
         });
     }
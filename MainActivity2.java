@@ -40,7 +40,6 @@ import java.util.concurrent.TimeUnit;
 public class MainActivity2 extends AppCompatActivity {
 
     private static final String TAG = "MainActivity2";
-    private static final String FIREBASE_URL = "https://eye-disease-detection-6a200-default-rtdb.asia-southeast1.firebasedatabase.app";
 
     // UI components
     private TextInputLayout phoneInputLayout;
@@ -69,7 +68,7 @@ public class MainActivity2 extends AppCompatActivity {
 
         // Initialize Firebase Auth and Database
         mAuth = FirebaseAuth.getInstance();
-        mDatabase = FirebaseDatabase.getInstance(FIREBASE_URL).getReference();
+        mDatabase = FirebaseDatabase.getInstance(FirebasePaths.DATABASE_URL).getReference();
 
         // Initialize UI components
         initializeViews();
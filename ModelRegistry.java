@@ -0,0 +1,340 @@
+package com.example.eddc;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.pytorch.Module;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Locale;
+
+/**
+ * Process-wide owner of the classifier model.
+ * The TorchScript file is extracted from assets only when the cached copy is missing or stale, loaded
+ * once, warmed up, and then shared by every activity together with one BatchPredictor.
+ */
+public class ModelRegistry {
+
+    private static final String TAG = "ModelRegistry";
+    private static final String PREFS_NAME = "EDDCModelPrefs";
+    private static final String KEY_MODEL_SIZE = "model_size";
+    private static final String KEY_MODEL_SHA256 = "model_sha256";
+    private static final String KEY_BACKEND = "backend";
+
+    public static final String MODEL_FILE = "eye_disease_classifier.pt";
+    public static final String WEIGHTS_FILE = "eye_disease_classifier.weights";
+    public static final String QUANTIZED_FILE = "eye_disease_classifier.q8";
+    public static final int INPUT_SIZE = 256;
+
+    // All 15 class names in model output order (must match training order exactly)
+    public static final String[] CLASS_NAMES = {"Blepharitis", "Bulging_Eyes", "Cataract", "Chalazion",
+            "Conjunctivitis", "Crossed_Eyes", "Diabetic_Retinopathy",
+            "Eyelid_Drooping", "Glaucoma", "Jaundice", "Keratitis",
+            "Normal", "Pterygium", "Stye", "Uveitis"};
+    private static final int MAX_BATCH_SIZE = 4;
+    private static final long BATCH_WINDOW_MS = 10;
+
+    private static volatile ModelRegistry instance;
+
+    private final Context appContext;
+
+    /** Inference engines the registry can load. */
+    public enum Backend {
+        TORCHSCRIPT,
+        JAVA,
+        JAVA_INT8
+    }
+
+    private volatile Backend preferredBackend;
+    private volatile Backend activeBackend;
+    private volatile ClassifierBackend backend;
+    private volatile BatchPredictor predictor;
+    private volatile String modelVersion;
+    private String loadedSha256;
+    private int outputLength = -1;
+
+    // Metrics, all in milliseconds; -1 until measured
+    private volatile long extractMillis = -1;
+    private volatile long loadMillis = -1;
+    private volatile long warmUpMillis = -1;
+    private volatile long coldTimeToFirstPredictionMillis = -1;
+    private volatile long warmTimeToFirstPredictionMillis = -1;
+
+    private ModelRegistry(Context context) {
+        this.appContext = context.getApplicationContext();
+        this.preferredBackend = readPreferredBackend();
+    }
+
+    public static ModelRegistry getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ModelRegistry.class) {
+                if (instance == null) {
+                    instance = new ModelRegistry(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    public boolean isLoaded() {
+        return backend != null;
+    }
+
+    /**
+     * Selects the backend to try first on the next load and remembers it across restarts.
+     * TorchScript falls back to the pure-Java engine when the PyTorch native library or the
+     * .pt asset is unavailable, and INT8 when the .q8 asset is.
+     */
+    public void setPreferredBackend(Backend preferred) {
+        this.preferredBackend = preferred;
+        appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putString(KEY_BACKEND, preferred.name())
+                .apply();
+    }
+
+    public Backend getPreferredBackend() {
+        return preferredBackend;
+    }
+
+    /**
+     * Loads the target backend, or replaces the loaded one, e.g. to switch between the float
+     * and INT8 engines at runtime. The current backend keeps serving until the new one is
+     * warmed up; requests still queued on the previous predictor are then cancelled. The
+     * backend that actually loaded, which may be a fallback, is remembered across restarts;
+     * on failure the choice is left as it was. Blocks.
+     */
+    public synchronized void switchBackend(Backend target) throws IOException {
+        if (backend != null && target == activeBackend) {
+            setPreferredBackend(target);
+            return;
+        }
+        BatchPredictor previous = predictor;
+        load(target);
+        setPreferredBackend(activeBackend);
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+
+    /**
+     * Extracts, loads and warms up the model if this process has not done so yet.
+     * Blocks, so call it from a background thread. A model that fails its warm-up forward
+     * pass throws the backend's RuntimeException and stays unloaded.
+     *
+     * @return true when this call paid the cold-start cost, false when the model was already loaded
+     */
+    public synchronized boolean ensureLoaded() throws IOException {
+        if (backend != null) {
+            return false;
+        }
+        load(preferredBackend);
+        return true;
+    }
+
+    private void load(Backend preferred) throws IOException {
+        InferenceTracer.getInstance().count(InferenceTracer.Counter.MODEL_LOAD);
+        ClassifierBackend loaded;
+        Backend loadedType;
+        if (preferred == Backend.TORCHSCRIPT) {
+            try {
+                // Warmed up here too, so a model that loads but cannot run also falls back
+                loaded = loadTorchScript();
+                warmUp(loaded);
+                loadedType = Backend.TORCHSCRIPT;
+            } catch (IOException | RuntimeException | UnsatisfiedLinkError e) {
+                Log.w(TAG, "TorchScript unavailable, falling back to the Java backend", e);
+                try {
+                    loaded = loadJava();
+                    warmUp(loaded);
+                } catch (IOException | RuntimeException fallbackError) {
+                    // Keep the TorchScript failure; it is usually the one worth reporting
+                    fallbackError.addSuppressed(e);
+                    throw fallbackError;
+                }
+                loadedType = Backend.JAVA;
+            }
+        } else if (preferred == Backend.JAVA_INT8) {
+            try {
+                loaded = loadQuantized();
+                warmUp(loaded);
+                loadedType = Backend.JAVA_INT8;
+            } catch (IOException | RuntimeException e) {
+                // The .q8 asset is built offline and often not shipped
+                Log.w(TAG, "INT8 model unavailable, falling back to the Java backend", e);
+                try {
+                    loaded = loadJava();
+                    warmUp(loaded);
+                } catch (IOException | RuntimeException fallbackError) {
+                    fallbackError.addSuppressed(e);
+                    throw fallbackError;
+                }
+                loadedType = Backend.JAVA;
+            }
+        } else {
+            loaded = loadJava();
+            warmUp(loaded);
+            loadedType = Backend.JAVA;
+        }
+
+        predictor = new BatchPredictor(loaded, INPUT_SIZE, MAX_BATCH_SIZE, BATCH_WINDOW_MS);
+        backend = loaded;
+        activeBackend = loadedType;
+        modelVersion = loadedType.name().toLowerCase(Locale.ROOT) + "-" + loadedSha256.substring(0, 12);
+
+        Log.d(TAG, "Model ready (" + activeBackend + "): extract " + extractMillis + " ms, load "
+                + loadMillis + " ms, warm-up " + warmUpMillis + " ms");
+    }
+
+    public ClassifierBackend getBackend() {
+        return backend;
+    }
+
+    /** Backend that was actually loaded, or null before loading. */
+    public Backend getActiveBackend() {
+        return activeBackend;
+    }
+
+    /**
+     * Identifies the loaded backend and weights, e.g. "java-3f2a9c0b71de"; changes whenever
+     * either does, so results cached under an older version are never reused. Null before loading.
+     */
+    public String getModelVersion() {
+        return modelVersion;
+    }
+
+    public BatchPredictor getPredictor() {
+        return predictor;
+    }
+
+    /** Number of logits the model produced during warm-up, or -1 before loading. */
+    public int getOutputLength() {
+        return outputLength;
+    }
+
+    /**
+     * Records the time from a screen starting to its first prediction result.
+     * Cold means the screen had to load the model first.
+     */
+    public void recordTimeToFirstPrediction(boolean coldStart, long elapsedMillis) {
+        if (coldStart) {
+            coldTimeToFirstPredictionMillis = elapsedMillis;
+        } else {
+            warmTimeToFirstPredictionMillis = elapsedMillis;
+        }
+        Log.d(TAG, (coldStart ? "Cold" : "Warm") + " time to first prediction: " + elapsedMillis + " ms");
+    }
+
+    public long getColdTimeToFirstPredictionMillis() {
+        return coldTimeToFirstPredictionMillis;
+    }
+
+    public long getWarmTimeToFirstPredictionMillis() {
+        return warmTimeToFirstPredictionMillis;
+    }
+
+    public long getExtractMillis() {
+        return extractMillis;
+    }
+
+    public long getLoadMillis() {
+        return loadMillis;
+    }
+
+    public long getWarmUpMillis() {
+        return warmUpMillis;
+    }
+
+    private ClassifierBackend loadTorchScript() throws IOException {
+        long start = SystemClock.elapsedRealtime();
+        String modelPath = extractModel();
+        extractMillis = SystemClock.elapsedRealtime() - start;
+
+        start = SystemClock.elapsedRealtime();
+        Module module = Module.load(modelPath);
+        loadMillis = SystemClock.elapsedRealtime() - start;
+        return new TorchScriptBackend(module, INPUT_SIZE);
+    }
+
+    // Weights are read straight from assets, so there is nothing to extract
+    private ClassifierBackend loadJava() throws IOException {
+        extractMillis = 0;
+        long start = SystemClock.elapsedRealtime();
+        loadedSha256 = new AssetExtractor(appContext.getAssets()).sha256(WEIGHTS_FILE);
+        try (InputStream is = appContext.getAssets().open(WEIGHTS_FILE)) {
+            ClassifierBackend loaded = JavaCnnBackend.load(is, INPUT_SIZE);
+            loadMillis = SystemClock.elapsedRealtime() - start;
+            return loaded;
+        }
+    }
+
+    // INT8 model produced by QuantizationCalibrator
+    private ClassifierBackend loadQuantized() throws IOException {
+        extractMillis = 0;
+        long start = SystemClock.elapsedRealtime();
+        loadedSha256 = new AssetExtractor(appContext.getAssets()).sha256(QUANTIZED_FILE);
+        try (InputStream is = appContext.getAssets().open(QUANTIZED_FILE)) {
+            ClassifierBackend loaded = QuantizedCnnBackend.load(is);
+            loadMillis = SystemClock.elapsedRealtime() - start;
+            return loaded;
+        }
+    }
+
+    // Runs one forward pass on a neutral input so the first real prediction does not pay
+    // for lazy initialization; records the output length and the time taken
+    private void warmUp(ClassifierBackend loaded) {
+        long start = SystemClock.elapsedRealtime();
+        FloatBuffer input = ByteBuffer.allocateDirect(3 * INPUT_SIZE * INPUT_SIZE * 4)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+        outputLength = loaded.forward(input, 1).length;
+        warmUpMillis = SystemClock.elapsedRealtime() - start;
+    }
+
+    // Saved by setPreferredBackend; TorchScript when unset or no longer a known backend
+    private Backend readPreferredBackend() {
+        String saved = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .getString(KEY_BACKEND, null);
+        if (saved != null) {
+            try {
+                return Backend.valueOf(saved);
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "Ignoring unknown backend preference " + saved);
+            }
+        }
+        return Backend.TORCHSCRIPT;
+    }
+
+    /**
+     * Returns the path of the extracted model, copying it out of assets only when the cached
+     * file's size or the asset's SHA-256 differs from what was recorded at the last copy.
+     */
+    private String extractModel() throws IOException {
+        File file = new File(appContext.getFilesDir(), MODEL_FILE);
+        SharedPreferences prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+
+        AssetExtractor extractor = new AssetExtractor(appContext.getAssets());
+        String assetHash = extractor.sha256(MODEL_FILE);
+        loadedSha256 = assetHash;
+        if (file.exists()
+                && file.length() == prefs.getLong(KEY_MODEL_SIZE, -1)
+                && assetHash.equals(prefs.getString(KEY_MODEL_SHA256, null))) {
+            Log.d(TAG, "Reusing cached model (" + file.length() + " bytes)");
+            return file.getAbsolutePath();
+        }
+
+        extractor.extract(MODEL_FILE, file);
+        prefs.edit()
+                .putLong(KEY_MODEL_SIZE, file.length())
+                .putString(KEY_MODEL_SHA256, assetHash)
+                .apply();
+        Log.d(TAG, "Extracted model (" + file.length() + " bytes)");
+        return file.getAbsolutePath();
+    }
+}
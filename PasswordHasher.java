@@ -0,0 +1,222 @@
+package com.example.eddc;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Salted PBKDF2-HMAC-SHA256 password hashing with a self-describing stored format:
+ * {@code $pbkdf2-sha256$v1$<iterations>$<salt hex>$<hash hex>}.
+ *
+ * The iteration count is calibrated once per device to take about TARGET_VERIFY_MILLIS, but
+ * never exceeds FLEET_MAX_ITERATIONS, the cost the slowest supported device can verify in that
+ * time. Accounts move between devices, so a hash created on a fast phone must still verify
+ * promptly on a slow one: rehashing raises weaker hashes to this device's cost and brings
+ * hashes above the budget back down to it. Stored values without the prefix are legacy
+ * plaintext passwords; they still verify, and needsRehash() reports them for replacement.
+ */
+public class PasswordHasher {
+
+    public static final long TARGET_VERIFY_MILLIS = 100;
+
+    static final String PREFIX = "$pbkdf2-sha256$";
+    static final String VERSION = "v1";
+    static final int MIN_ITERATIONS = 10_000;
+    static final int MAX_ITERATIONS = 1_000_000;
+
+    // Fleet-wide budget: about TARGET_VERIFY_MILLIS on the slowest supported device tier.
+    // Re-measure with PasswordHashBenchmark in benchmarks/ on that tier before raising it.
+    static final int FLEET_MAX_ITERATIONS = 100_000;
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final long CALIBRATION_WARMUP_NANOS = 250_000_000L;
+    private static final int CALIBRATION_ROUNDS = 4;
+    private static final int CALIBRATION_RUNS = 3;
+
+    private static final String TAG = "PasswordHasher";
+    private static final String PREFS_NAME = "EDDCSecurityPrefs";
+    private static final String KEY_ITERATIONS = "pbkdf2_iterations";
+
+    private static volatile PasswordHasher instance;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    public PasswordHasher(int iterations) {
+        if (iterations < MIN_ITERATIONS || iterations > MAX_ITERATIONS) {
+            throw new IllegalArgumentException("iterations out of range: " + iterations);
+        }
+        this.iterations = iterations;
+    }
+
+    /**
+     * Returns the device's hasher, calibrating and remembering the iteration count on first
+     * use, capped at FLEET_MAX_ITERATIONS. Calibration takes a few hundred milliseconds, so
+     * call it off the main thread.
+     */
+    public static PasswordHasher forDevice(Context context) {
+        if (instance == null) {
+            synchronized (PasswordHasher.class) {
+                if (instance == null) {
+                    SharedPreferences prefs = context.getApplicationContext()
+                            .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+                    int stored = prefs.getInt(KEY_ITERATIONS, 0);
+                    if (stored < MIN_ITERATIONS) {
+                        stored = calibrate(TARGET_VERIFY_MILLIS);
+                        if (stored < FLEET_MAX_ITERATIONS) {
+                            // Accounts hashed elsewhere at the full budget will verify slowly here
+                            Log.w(TAG, "Device calibrates to " + stored + " iterations, below the fleet budget of "
+                                    + FLEET_MAX_ITERATIONS);
+                        }
+                        prefs.edit().putInt(KEY_ITERATIONS, stored).apply();
+                    }
+                    // Also caps counts calibrated before the budget existed
+                    instance = new PasswordHasher(Math.min(stored, FLEET_MAX_ITERATIONS));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Picks the iteration count whose hash takes about targetMillis on this device. Each round
+     * times the current guess and rescales it, so the final estimate is measured near the
+     * target cost rather than extrapolated from a short, still-warming-up run.
+     */
+    public static int calibrate(long targetMillis) {
+        byte[] salt = new byte[SALT_BYTES];
+        char[] probe = "calibration".toCharArray();
+        long warmupEnd = System.nanoTime() + CALIBRATION_WARMUP_NANOS;
+        do {
+            derive(probe, salt, MIN_ITERATIONS / 2); // Provider loading and JIT
+        } while (System.nanoTime() < warmupEnd);
+
+        int iterations = MIN_ITERATIONS;
+        for (int round = 0; round < CALIBRATION_ROUNDS; round++) {
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < CALIBRATION_RUNS; i++) {
+                long start = System.nanoTime();
+                derive(probe, salt, iterations);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            long scaled = Math.round(iterations * (targetMillis * 1e6 / best) / 1000) * 1000;
+            int next = (int) Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, scaled));
+            boolean converged = Math.abs(next - iterations) <= iterations / 10;
+            iterations = next;
+            if (converged) {
+                break;
+            }
+        }
+        return iterations;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = derive(password.toCharArray(), salt, iterations);
+        return PREFIX + VERSION + "$" + iterations + "$" + toHex(salt) + "$" + toHex(hash);
+    }
+
+    /** Checks a password against a stored value in time independent of where they differ. */
+    public boolean verify(String password, String stored) {
+        if (stored == null) {
+            return false;
+        }
+        if (!stored.startsWith(PREFIX)) {
+            // Legacy plaintext
+            return MessageDigest.isEqual(utf8(password), utf8(stored));
+        }
+        String[] parts = stored.substring(PREFIX.length()).split("\\$");
+        if (parts.length != 4 || !VERSION.equals(parts[0])) {
+            return false;
+        }
+        try {
+            int storedIterations = Integer.parseInt(parts[1]);
+            if (storedIterations < 1 || storedIterations > MAX_ITERATIONS) {
+                return false;
+            }
+            byte[] salt = fromHex(parts[2]);
+            byte[] expected = fromHex(parts[3]);
+            byte[] actual = derive(password.toCharArray(), salt, storedIterations);
+            return MessageDigest.isEqual(expected, actual);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * True for plaintext, older versions, hashes weaker than this hasher's cost and hashes
+     * above FLEET_MAX_ITERATIONS. A hash at or below the budget is never raised past it, and
+     * one between this device's cost and the budget is left alone.
+     */
+    public boolean needsRehash(String stored) {
+        if (stored == null || !stored.startsWith(PREFIX)) {
+            return true;
+        }
+        String[] parts = stored.substring(PREFIX.length()).split("\\$");
+        if (parts.length != 4 || !VERSION.equals(parts[0])) {
+            return true;
+        }
+        try {
+            int storedIterations = Integer.parseInt(parts[1]);
+            return storedIterations < Math.min(iterations, FLEET_MAX_ITERATIONS)
+                    || storedIterations > FLEET_MAX_ITERATIONS;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    static byte[] derive(char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            throw new IllegalStateException(ALGORITHM + " unavailable", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static byte[] fromHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("Odd hex length");
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Bad hex digit");
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.eddc;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Caches class probabilities by the content of the model input, so analyzing the same image
+ * again skips the forward pass. Keys combine the model version with a 64-bit hash of the
+ * downsampled pixels the tensor is built from. Recent entries live in an in-memory LRU; all
+ * entries are also written to a size-bounded directory that evicts the least recently used files.
+ */
+public class PredictionCache {
+
+    private static final String TAG = "PredictionCache";
+    private static final String CACHE_DIR = "predictions";
+    private static final String FILE_SUFFIX = ".pc";
+    private static final int FILE_MAGIC = 0x45445032; // "EDP2"; older entries are dropped on read
+    private static final int MEMORY_ENTRIES = 64;
+    private static final long MAX_DISK_BYTES = 512 * 1024;
+
+    private static volatile PredictionCache instance;
+
+    private final DiskCache disk;
+    private final Map<String, Entry> memory;
+    // History writes submitted but not yet stored, as userId + '\n' + key
+    private final Set<String> historyWrites = new HashSet<>();
+    private int hits;
+    private int misses;
+
+    /** Cached probabilities plus the users who already have a history record for them. */
+    public static class Entry {
+        private final float[] probabilities;
+        private final Set<String> historyUsers;
+
+        Entry(float[] probabilities, Set<String> historyUsers) {
+            this.probabilities = probabilities;
+            this.historyUsers = historyUsers;
+        }
+
+        /** Full softmax output; callers must not modify it. */
+        public float[] getProbabilities() {
+            return probabilities;
+        }
+    }
+
+    public PredictionCache(File directory, final int memoryEntries, long maxDiskBytes) {
+        this.disk = new DiskCache(directory, maxDiskBytes);
+        this.memory = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PredictionCache.Entry> eldest) {
+                return size() > memoryEntries;
+            }
+        };
+    }
+
+    public static PredictionCache getInstance(Context context) {
+        if (instance == null) {
+            synchronized (PredictionCache.class) {
+                if (instance == null) {
+                    File dir = new File(context.getApplicationContext().getCacheDir(), CACHE_DIR);
+                    instance = new PredictionCache(dir, MEMORY_ENTRIES, MAX_DISK_BYTES);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Builds the cache key for an image. The pixels must be the decoded, downsampled image
+     * that is handed to the predictor, since the input tensor is a pure function of them.
+     */
+    public static String key(String modelVersion, int[] pixels, int width, int height) {
+        long hash = hash(pixels, width * height) ^ ((long) width << 32 | height);
+        return modelVersion + "_" + Long.toHexString(mix(hash));
+    }
+
+    // 64-bit multiply-xorshift over the packed ARGB words
+    static long hash(int[] pixels, int length) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < length; i++) {
+            h = (h ^ pixels[i]) * 0x100000001B3L;
+            h ^= h >>> 29;
+        }
+        return h;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    /** Returns the cached entry, promoting disk hits into memory, or null on a miss. */
+    public synchronized Entry get(String key) {
+        Entry entry = memory.get(key);
+        if (entry == null) {
+            entry = readFromDisk(key);
+            if (entry != null) {
+                memory.put(key, entry);
+            }
+        }
+        if (entry != null) {
+            hits++;
+            InferenceTracer.getInstance().count(InferenceTracer.Counter.CACHE_HIT);
+        } else {
+            misses++;
+            InferenceTracer.getInstance().count(InferenceTracer.Counter.CACHE_MISS);
+        }
+        return entry;
+    }
+
+    public synchronized Entry put(String key, float[] probabilities) {
+        Entry entry = new Entry(probabilities.clone(), new HashSet<>());
+        memory.put(key, entry);
+        writeToDisk(key, entry);
+        return entry;
+    }
+
+    /**
+     * Claims the history write for this user and image. Each user on the device gets their own
+     * record; a claim is refused while the user already has one or another write is in flight.
+     * Every successful claim must be followed by endHistoryWrite().
+     *
+     * @return false when the caller's write would be a duplicate
+     */
+    public synchronized boolean beginHistoryWrite(String key, String userId) {
+        Entry entry = memory.get(key);
+        if (entry == null) {
+            entry = readFromDisk(key);
+        }
+        if (entry != null && entry.historyUsers.contains(userId)) {
+            return false;
+        }
+        return historyWrites.add(userId + '\n' + key);
+    }
+
+    /**
+     * Releases a claim from beginHistoryWrite(). Only a stored record is remembered; after a
+     * rejected or failed write the next analysis of the image tries again.
+     */
+    public synchronized void endHistoryWrite(String key, String userId, boolean stored) {
+        historyWrites.remove(userId + '\n' + key);
+        if (!stored) {
+            return;
+        }
+        Entry entry = memory.get(key);
+        if (entry == null) {
+            entry = readFromDisk(key);
+        }
+        if (entry != null && entry.historyUsers.add(userId)) {
+            writeToDisk(key, entry); // Evicted entries have nothing to update
+        }
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    private Entry readFromDisk(String key) {
+        byte[] data = disk.get(key + FILE_SUFFIX);
+        if (data == null) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IOException("Bad magic");
+            }
+            float[] probabilities = new float[in.readInt()];
+            for (int i = 0; i < probabilities.length; i++) {
+                probabilities[i] = in.readFloat();
+            }
+            Set<String> historyUsers = new HashSet<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                historyUsers.add(in.readUTF());
+            }
+            return new Entry(probabilities, historyUsers);
+        } catch (IOException e) {
+            Log.w(TAG, "Dropping corrupt cache entry " + key, e);
+            disk.remove(key + FILE_SUFFIX);
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, Entry entry) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(12 + 4 * entry.probabilities.length);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(entry.probabilities.length);
+            for (float p : entry.probabilities) {
+                out.writeFloat(p);
+            }
+            out.writeInt(entry.historyUsers.size());
+            for (String userId : entry.historyUsers) {
+                out.writeUTF(userId);
+            }
+        } catch (IOException e) {
+            throw new AssertionError(e); // In-memory stream
+        }
+        disk.put(key + FILE_SUFFIX, bytes.toByteArray());
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.eddc;
+
+/**
+ * Packs a probability distribution into one byte per class.
+ * Each probability is quantized to a multiple of 1/255 using largest-remainder rounding, so the
+ * stored bytes always sum to exactly 255 and the decoded vector sums to 1. The worst-case
+ * error per class is 1/255 (about 0.4 percentage points): 15 bytes for the 15-class model.
+ */
+public final class ProbabilityCodec {
+
+    /** Value the encoded bytes of one vector sum to. */
+    public static final int TOTAL = 255;
+
+    private ProbabilityCodec() {
+    }
+
+    public static byte[] encode(float[] probabilities) {
+        byte[] out = new byte[probabilities.length];
+        encode(probabilities, out, 0);
+        return out;
+    }
+
+    /**
+     * Writes probabilities.length bytes at offset. The input is renormalized first, so raw
+     * softmax output with rounding drift is fine; negative and NaN entries count as zero.
+     */
+    public static void encode(float[] probabilities, byte[] out, int offset) {
+        int n = probabilities.length;
+        if (n == 0) {
+            return;
+        }
+        double sum = 0;
+        for (float p : probabilities) {
+            if (p > 0) sum += p;
+        }
+        if (sum <= 0) {
+            // No information; store a uniform distribution
+            for (int i = 0; i < n; i++) {
+                out[offset + i] = (byte) (TOTAL / n + (i < TOTAL % n ? 1 : 0));
+            }
+            return;
+        }
+
+        double scale = TOTAL / sum;
+        int assigned = 0;
+        for (int i = 0; i < n; i++) {
+            float p = probabilities[i];
+            int q = p > 0 ? (int) (p * scale) : 0;
+            out[offset + i] = (byte) q;
+            assigned += q;
+        }
+
+        // Hand the remaining units to the largest fractional parts; at most n - 1 of them
+        for (int remaining = TOTAL - assigned; remaining > 0; remaining--) {
+            int best = -1;
+            double bestFraction = -1;
+            for (int i = 0; i < n; i++) {
+                float p = probabilities[i];
+                double fraction = p > 0 ? p * scale - (out[offset + i] & 0xFF) : 0;
+                if (fraction > bestFraction) {
+                    bestFraction = fraction;
+                    best = i;
+                }
+            }
+            out[offset + best]++;
+        }
+    }
+
+    public static float[] decode(byte[] encoded) {
+        float[] out = new float[encoded.length];
+        decode(encoded, 0, encoded.length, out);
+        return out;
+    }
+
+    public static void decode(byte[] encoded, int offset, int length, float[] out) {
+        for (int i = 0; i < length; i++) {
+            out[i] = (encoded[offset + i] & 0xFF) / (float) TOTAL;
+        }
+    }
+
+    /**
+     * Class indices of the k most likely classes, most likely first, read straight from the
+     * encoded bytes. Ties keep the lower index first.
+     */
+    public static int[] topK(byte[] encoded, int k) {
+        k = Math.min(k, encoded.length);
+        int[] top = new int[k];
+        for (int slot = 0; slot < k; slot++) {
+            int best = -1;
+            for (int i = 0; i < encoded.length; i++) {
+                if (contains(top, slot, i)) {
+                    continue;
+                }
+                if (best < 0 || (encoded[i] & 0xFF) > (encoded[best] & 0xFF)) {
+                    best = i;
+                }
+            }
+            top[slot] = best;
+        }
+        return top;
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) return true;
+        }
+        return false;
+    }
+}
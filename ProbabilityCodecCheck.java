@@ -0,0 +1,102 @@
+package com.example.eddc;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Command-line check of ProbabilityCodec over random distributions of several shapes (peaked
+ * and flat softmax output, one-hot, unnormalized, all zero). Every encoding must sum to exactly
+ * ProbabilityCodec.TOTAL, every decoded probability must be within 1/255 of the normalized
+ * input, and topK must agree with the decoded argmax; any violation makes the exit status 1.
+ * ProbabilityCodecBenchmark in benchmarks/ times encode, decode and topK on the same inputs.
+ *
+ * Usage: ProbabilityCodecCheck [vectors] [classes]
+ */
+public class ProbabilityCodecCheck {
+
+    // 1/255 plus room for the float division in decode()
+    private static final double MAX_ERROR = 1.0 / ProbabilityCodec.TOTAL + 1e-6;
+
+    public static void main(String[] args) {
+        int vectors = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int classes = args.length > 1 ? Integer.parseInt(args[1]) : ModelRegistry.CLASS_NAMES.length;
+
+        float[][] inputs = inputs(vectors, classes);
+        byte[] encoded = new byte[vectors * classes];
+        float[] decoded = new float[classes];
+        double maxError = 0;
+        int failures = 0;
+        for (int i = 0; i < vectors; i++) {
+            ProbabilityCodec.encode(inputs[i], encoded, i * classes);
+            ProbabilityCodec.decode(encoded, i * classes, classes, decoded);
+
+            int sum = 0;
+            for (int c = 0; c < classes; c++) {
+                sum += encoded[i * classes + c] & 0xFF;
+            }
+            double error = maxError(inputs[i], decoded);
+            byte[] own = ProbabilityCodec.encode(inputs[i]);
+            boolean topMatches = ProbabilityCodec.topK(own, 1)[0] == ClassScores.argMax(decoded);
+            maxError = Math.max(maxError, error);
+            if (sum != ProbabilityCodec.TOTAL || error > MAX_ERROR || !topMatches) {
+                if (failures++ < 5) {
+                    System.out.println(String.format(Locale.US, "vector %d: byte sum %d, max error %.6f, top class %s FAIL",
+                            i, sum, error, topMatches ? "matches" : "differs"));
+                }
+            }
+        }
+        System.out.println(String.format(Locale.US, "%d vectors of %d classes: max abs error %.6f (limit %.6f), %d failures",
+                vectors, classes, maxError, 1.0 / ProbabilityCodec.TOTAL, failures));
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /** The check's inputs: the five shapes in turn, from a fixed seed. */
+    static float[][] inputs(int vectors, int classes) {
+        Random random = new Random(17);
+        float[][] inputs = new float[vectors][];
+        for (int i = 0; i < vectors; i++) {
+            inputs[i] = distribution(random, classes, i % 5);
+        }
+        return inputs;
+    }
+
+    // Shapes: 0 peaked softmax, 1 flat softmax, 2 one-hot, 3 unnormalized with negatives, 4 all zero
+    private static float[] distribution(Random random, int classes, int shape) {
+        float[] p = new float[classes];
+        switch (shape) {
+            case 0:
+            case 1:
+                float temperature = shape == 0 ? 4f : 0.3f;
+                for (int c = 0; c < classes; c++) {
+                    p[c] = (float) random.nextGaussian() * temperature;
+                }
+                return ClassScores.softmax(p);
+            case 2:
+                p[random.nextInt(classes)] = 1f;
+                return p;
+            case 3:
+                for (int c = 0; c < classes; c++) {
+                    p[c] = random.nextFloat() * 3f - 1f;
+                }
+                return p;
+            default:
+                return p;
+        }
+    }
+
+    // Against the input renormalized the way encode() does: negatives count as zero
+    private static double maxError(float[] input, float[] decoded) {
+        double sum = 0;
+        for (float p : input) {
+            if (p > 0) sum += p;
+        }
+        double max = 0;
+        for (int c = 0; c < input.length; c++) {
+            double expected = sum > 0 ? Math.max(0, input[c]) / sum : 1.0 / input.length;
+            max = Math.max(max, Math.abs(decoded[c] - expected));
+        }
+        return max;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.eddc;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Command-line tool that calibrates activation ranges for QuantizedCnnBackend over a local
+ * image folder laid out like the app_2.py dataset directory (one sub-folder per class),
+ * writes the INT8 model and reports top-1 agreement with the float model.
+ *
+ * Usage: QuantizationCalibrator weights-file dataset-dir output-file [max-images-per-class]
+ */
+public class QuantizationCalibrator {
+
+    private static final int INPUT_SIZE = 256;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: QuantizationCalibrator <weights-file> <dataset-dir> <output-file> [max-images-per-class]");
+            System.exit(2);
+        }
+        File weightsFile = new File(args[0]);
+        File datasetDir = new File(args[1]);
+        File outputFile = new File(args[2]);
+        int perClassLimit = args.length > 3 ? Integer.parseInt(args[3]) : Integer.MAX_VALUE;
+
+        JavaCnnBackend floatModel;
+        try (InputStream in = new FileInputStream(weightsFile)) {
+            floatModel = JavaCnnBackend.load(in, INPUT_SIZE);
+        }
+
+        List<File> images = new ArrayList<>();
+        List<Integer> labels = new ArrayList<>();
+        listDataset(datasetDir, perClassLimit, images, labels);
+        if (images.isEmpty()) {
+            System.err.println("No images found under " + datasetDir);
+            System.exit(1);
+        }
+        System.out.println("Calibrating on " + images.size() + " images");
+
+        TensorPreprocessor preprocessor = new TensorPreprocessor(INPUT_SIZE);
+        float[] input = new float[preprocessor.getTensorLength()];
+        FloatBuffer inputBuffer = FloatBuffer.wrap(input);
+        float[] logits = new float[floatModel.getNumClasses()];
+
+        // Pass 1: largest absolute activation at the input of every weight layer
+        float[] absMax = new float[JavaCnnBackend.ActivationObserver.POINTS];
+        JavaCnnBackend.ActivationObserver observer = (point, values, length) -> {
+            float max = absMax[point];
+            for (int i = 0; i < length; i++) {
+                float v = Math.abs(values[i]);
+                if (v > max) max = v;
+            }
+            absMax[point] = max;
+        };
+        for (File image : images) {
+            if (loadInto(image, preprocessor, inputBuffer)) {
+                floatModel.forwardImage(input, logits, 0, observer);
+            }
+        }
+        System.out.println("Activation ranges: " + Arrays.toString(absMax));
+
+        QuantizedCnnBackend quantized = QuantizedCnnBackend.quantize(floatModel, absMax, INPUT_SIZE);
+        try (OutputStream out = new FileOutputStream(outputFile)) {
+            quantized.write(out);
+        }
+        System.out.println(String.format(Locale.US, "Wrote %s (%d bytes, float weights %d bytes)",
+                outputFile, outputFile.length(), weightsFile.length()));
+
+        // Pass 2: compare both models on the same images
+        int evaluated = 0, agree = 0, floatCorrect = 0, quantizedCorrect = 0;
+        long floatNanos = 0, quantizedNanos = 0;
+        for (int i = 0; i < images.size(); i++) {
+            if (!loadInto(images.get(i), preprocessor, inputBuffer)) {
+                continue;
+            }
+            long start = System.nanoTime();
+            floatModel.forwardImage(input, logits, 0, null);
+            floatNanos += System.nanoTime() - start;
+            int floatTop = ClassScores.argMax(logits);
+
+            start = System.nanoTime();
+            int quantizedTop = ClassScores.argMax(quantized.forward(inputBuffer, 1));
+            quantizedNanos += System.nanoTime() - start;
+
+            evaluated++;
+            if (floatTop == quantizedTop) agree++;
+            if (floatTop == labels.get(i)) floatCorrect++;
+            if (quantizedTop == labels.get(i)) quantizedCorrect++;
+        }
+
+        System.out.println(String.format(Locale.US, "Top-1 agreement with float model: %.2f%% (%d/%d)",
+                100.0 * agree / evaluated, agree, evaluated));
+        System.out.println(String.format(Locale.US, "Accuracy: float %.2f%%, int8 %.2f%%",
+                100.0 * floatCorrect / evaluated, 100.0 * quantizedCorrect / evaluated));
+        System.out.println(String.format(Locale.US, "Mean latency: float %.2f ms, int8 %.2f ms",
+                floatNanos / 1e6 / evaluated, quantizedNanos / 1e6 / evaluated));
+    }
+
+    // Class folders in sorted order, matching torchvision ImageFolder label indices
+    private static void listDataset(File root, int perClassLimit, List<File> images, List<Integer> labels) {
+        File[] classDirs = root.listFiles(File::isDirectory);
+        if (classDirs == null) {
+            return;
+        }
+        Arrays.sort(classDirs);
+        for (int label = 0; label < classDirs.length; label++) {
+            File[] files = classDirs[label].listFiles(QuantizationCalibrator::isImage);
+            if (files == null) {
+                continue;
+            }
+            Arrays.sort(files);
+            for (int i = 0; i < files.length && i < perClassLimit; i++) {
+                images.add(files[i]);
+                labels.add(label);
+            }
+        }
+    }
+
+    static boolean isImage(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        return file.isFile() && (name.endsWith(".jpg") || name.endsWith(".jpeg")
+                || name.endsWith(".png") || name.endsWith(".bmp"));
+    }
+
+    private static boolean loadInto(File file, TensorPreprocessor preprocessor, FloatBuffer out) throws IOException {
+        BufferedImage image = ImageIO.read(file);
+        if (image == null) {
+            System.err.println("Skipping unreadable image " + file);
+            return false;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        preprocessor.preprocess(pixels, width, height, out, 0);
+        return true;
+    }
+}
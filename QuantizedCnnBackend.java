@@ -0,0 +1,384 @@
+package com.example.eddc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * INT8 execution of the app_2.py CNN.
+ * Weights are symmetric int8 with one scale per output channel, activations are symmetric
+ * int8 with one calibrated scale per layer input, and convolutions and dense layers
+ * accumulate in int32 before a single float rescale per output.
+ * Built from a JavaCnnBackend by QuantizationCalibrator and stored about 4x smaller than
+ * the float weights.
+ */
+public class QuantizedCnnBackend implements ClassifierBackend {
+
+    static final int MAGIC = 0x51434445; // "EDCQ" little-endian
+    private static final int VERSION = 1;
+    private static final int QMAX = 127;
+
+    private final int inputSize;
+    private final QuantizedLayer[] convLayers;
+    private final QuantizedLayer fc1, fc2;
+    private final ForkJoinPool pool;
+
+    // Scratch buffers sized for the largest layer, reused across calls
+    private final byte[] quantized, columns, hidden;
+    private final int[] accumulators;
+    private final float[] convOut;
+
+    private QuantizedCnnBackend(int inputSize, QuantizedLayer[] convLayers, QuantizedLayer fc1, QuantizedLayer fc2,
+                                ForkJoinPool pool) {
+        this.inputSize = inputSize;
+        this.convLayers = convLayers;
+        this.fc1 = fc1;
+        this.fc2 = fc2;
+        this.pool = pool;
+
+        int maxQuantized = 3 * inputSize * inputSize;
+        int maxColumns = 0, maxConvOut = 0;
+        int size = inputSize;
+        for (QuantizedLayer layer : convLayers) {
+            int convSize = (size - JavaCnnBackend.KERNEL) / JavaCnnBackend.STRIDE + 1;
+            maxColumns = Math.max(maxColumns, layer.depth * convSize * convSize);
+            maxConvOut = Math.max(maxConvOut, layer.outChannels * convSize * convSize);
+            size = convSize / 2;
+            maxQuantized = Math.max(maxQuantized, layer.outChannels * size * size);
+        }
+        quantized = new byte[maxQuantized];
+        hidden = new byte[fc1.outChannels];
+        columns = new byte[maxColumns];
+        accumulators = new int[maxConvOut];
+        convOut = new float[maxConvOut];
+    }
+
+    /**
+     * Quantizes a float model. activationAbsMax holds the largest absolute value seen at
+     * each JavaCnnBackend.ActivationObserver point during calibration.
+     */
+    public static QuantizedCnnBackend quantize(JavaCnnBackend model, float[] activationAbsMax, int inputSize) {
+        if (activationAbsMax.length != JavaCnnBackend.ActivationObserver.POINTS) {
+            throw new IllegalArgumentException("Expected " + JavaCnnBackend.ActivationObserver.POINTS
+                    + " activation ranges, got " + activationAbsMax.length);
+        }
+
+        JavaCnnBackend.ConvBlock[] blocks = model.getBlocks();
+        QuantizedLayer[] convLayers = new QuantizedLayer[blocks.length];
+        for (int i = 0; i < blocks.length; i++) {
+            convLayers[i] = QuantizedLayer.quantize(blocks[i].weight, blocks[i].bias,
+                    blocks[i].outChannels, blocks[i].depth, activationAbsMax[i]);
+        }
+
+        QuantizedLayer fc1 = QuantizedLayer.quantize(model.getFc1Weight(), model.getFc1Bias(),
+                model.getHiddenSize(), model.getFlatSize(), activationAbsMax[3]);
+        QuantizedLayer fc2 = QuantizedLayer.quantize(model.getFc2Weight(), model.getFc2Bias(),
+                model.getNumClasses(), model.getHiddenSize(), activationAbsMax[4]);
+        return new QuantizedCnnBackend(inputSize, convLayers, fc1, fc2, ForkJoinPool.commonPool());
+    }
+
+    @Override
+    public synchronized float[] forward(FloatBuffer input, int batchSize) {
+        int imageLength = 3 * inputSize * inputSize;
+        float[] logits = new float[batchSize * fc2.outChannels];
+
+        for (int n = 0; n < batchSize; n++) {
+            // Quantize the normalized image straight from the input buffer
+            float inverse = 1f / convLayers[0].inputScale;
+            int base = n * imageLength;
+            for (int i = 0; i < imageLength; i++) {
+                quantized[i] = quantize(input.get(base + i), inverse);
+            }
+
+            int channels = 3;
+            int size = inputSize;
+            for (int l = 0; l < convLayers.length; l++) {
+                QuantizedLayer layer = convLayers[l];
+                float nextScale = l + 1 < convLayers.length ? convLayers[l + 1].inputScale : fc1.inputScale;
+                size = convBlock(layer, channels, size, nextScale);
+                channels = layer.outChannels;
+            }
+
+            // Hidden layer: int32 dot products, ReLU, requantize for the output layer
+            float inverseHidden = 1f / fc2.inputScale;
+            for (int o = 0; o < fc1.outChannels; o++) {
+                float v = dot(fc1.weight, o * fc1.depth, quantized, fc1.depth) * fc1.outputScale[o] + fc1.bias[o];
+                hidden[o] = quantize(v < 0f ? 0f : v, inverseHidden);
+            }
+
+            for (int o = 0; o < fc2.outChannels; o++) {
+                logits[n * fc2.outChannels + o] =
+                        dot(fc2.weight, o * fc2.depth, hidden, fc2.depth) * fc2.outputScale[o] + fc2.bias[o];
+            }
+        }
+        return logits;
+    }
+
+    public int getNumClasses() {
+        return fc2.outChannels;
+    }
+
+    // Conv + bias + LeakyReLU + 2x2 max pool; leaves the requantized output in quantized[]
+    private int convBlock(QuantizedLayer layer, int channels, int size, float nextScale) {
+        int convSize = (size - JavaCnnBackend.KERNEL) / JavaCnnBackend.STRIDE + 1;
+        int area = convSize * convSize;
+        int poolSize = convSize / 2;
+
+        im2col(quantized, channels, size, columns, convSize);
+        igemm(layer.weight, columns, accumulators, layer.outChannels, area, layer.depth, pool);
+
+        float inverseNext = 1f / nextScale;
+        for (int o = 0; o < layer.outChannels; o++) {
+            float scale = layer.outputScale[o];
+            float b = layer.bias[o];
+            int rowBase = o * area;
+            for (int i = rowBase; i < rowBase + area; i++) {
+                float v = accumulators[i] * scale + b;
+                convOut[i] = v < 0f ? v * JavaCnnBackend.LEAKY_SLOPE : v;
+            }
+
+            int outBase = o * poolSize * poolSize;
+            for (int py = 0; py < poolSize; py++) {
+                int r0 = rowBase + (py * 2) * convSize;
+                int r1 = r0 + convSize;
+                for (int px = 0; px < poolSize; px++) {
+                    int cx = px * 2;
+                    float m = Math.max(Math.max(convOut[r0 + cx], convOut[r0 + cx + 1]),
+                            Math.max(convOut[r1 + cx], convOut[r1 + cx + 1]));
+                    quantized[outBase + py * poolSize + px] = quantize(m, inverseNext);
+                }
+            }
+        }
+        return poolSize;
+    }
+
+    private static byte quantize(float value, float inverseScale) {
+        int q = Math.round(value * inverseScale);
+        if (q > QMAX) return QMAX;
+        if (q < -QMAX) return -QMAX;
+        return (byte) q;
+    }
+
+    private static int dot(byte[] weight, int offset, byte[] x, int length) {
+        int sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += weight[offset + i] * x[i];
+        }
+        return sum;
+    }
+
+    static void im2col(byte[] x, int channels, int size, byte[] columns, int outSize) {
+        int outArea = outSize * outSize;
+        int row = 0;
+        for (int c = 0; c < channels; c++) {
+            int channelBase = c * size * size;
+            for (int ky = 0; ky < JavaCnnBackend.KERNEL; ky++) {
+                for (int kx = 0; kx < JavaCnnBackend.KERNEL; kx++, row++) {
+                    int dst = row * outArea;
+                    for (int oy = 0; oy < outSize; oy++) {
+                        int src = channelBase + (oy * JavaCnnBackend.STRIDE + ky) * size + kx;
+                        for (int ox = 0; ox < outSize; ox++) {
+                            columns[dst++] = x[src + ox * JavaCnnBackend.STRIDE];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Integer GEMM c[m, n] = a[m, k] * b[k, n] with int32 accumulation; same blocking and
+     * fork-join split as JavaCnnBackend.sgemm. With |a|, |b| <= 127 and k <= 576 the sums
+     * stay far below the int range.
+     */
+    static void igemm(byte[] a, byte[] b, int[] c, int m, int n, int k, ForkJoinPool pool) {
+        if (n <= JavaCnnBackend.COLUMN_BLOCK || pool == null) {
+            igemmBlock(a, b, c, m, n, k, 0, n);
+        } else {
+            pool.invoke(new GemmTask(a, b, c, m, n, k, 0, n));
+        }
+    }
+
+    private static void igemmBlock(byte[] a, byte[] b, int[] c, int m, int n, int k, int colStart, int colEnd) {
+        for (int i = 0; i < m; i++) {
+            int rowC = i * n;
+            for (int j = colStart; j < colEnd; j++) {
+                c[rowC + j] = 0;
+            }
+        }
+
+        for (int kb = 0; kb < k; kb += JavaCnnBackend.DEPTH_BLOCK) {
+            int kEnd = Math.min(kb + JavaCnnBackend.DEPTH_BLOCK, k);
+            for (int i = 0; i < m; i++) {
+                int rowA = i * k;
+                int rowC = i * n;
+                for (int p = kb; p < kEnd; p++) {
+                    int aip = a[rowA + p];
+                    if (aip == 0) {
+                        continue;
+                    }
+                    int rowB = p * n;
+                    for (int j = colStart; j < colEnd; j++) {
+                        c[rowC + j] += aip * b[rowB + j];
+                    }
+                }
+            }
+        }
+    }
+
+    private static class GemmTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] a, b;
+        private final int[] c;
+        private final int m, n, k, colStart, colEnd;
+
+        GemmTask(byte[] a, byte[] b, int[] c, int m, int n, int k, int colStart, int colEnd) {
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.m = m;
+            this.n = n;
+            this.k = k;
+            this.colStart = colStart;
+            this.colEnd = colEnd;
+        }
+
+        @Override
+        protected void compute() {
+            if (colEnd - colStart <= JavaCnnBackend.COLUMN_BLOCK) {
+                igemmBlock(a, b, c, m, n, k, colStart, colEnd);
+                return;
+            }
+            int blocks = (colEnd - colStart + JavaCnnBackend.COLUMN_BLOCK - 1) / JavaCnnBackend.COLUMN_BLOCK;
+            int mid = colStart + (blocks / 2) * JavaCnnBackend.COLUMN_BLOCK;
+            invokeAll(new GemmTask(a, b, c, m, n, k, colStart, mid),
+                    new GemmTask(a, b, c, m, n, k, mid, colEnd));
+        }
+    }
+
+    /** Weight layer with int8 weights [outChannels, depth] and per-channel scales. */
+    private static class QuantizedLayer {
+        final int outChannels, depth;
+        final float inputScale;
+        final float[] weightScale;
+        final float[] bias;
+        final byte[] weight;
+        // weightScale * inputScale, applied to the int32 accumulator
+        final float[] outputScale;
+
+        QuantizedLayer(int outChannels, int depth, float inputScale, float[] weightScale, float[] bias, byte[] weight) {
+            this.outChannels = outChannels;
+            this.depth = depth;
+            this.inputScale = inputScale;
+            this.weightScale = weightScale;
+            this.bias = bias;
+            this.weight = weight;
+            this.outputScale = new float[outChannels];
+            for (int o = 0; o < outChannels; o++) {
+                outputScale[o] = weightScale[o] * inputScale;
+            }
+        }
+
+        static QuantizedLayer quantize(float[] weight, float[] bias, int outChannels, int depth, float inputAbsMax) {
+            float[] scales = new float[outChannels];
+            byte[] q = new byte[outChannels * depth];
+            for (int o = 0; o < outChannels; o++) {
+                float absMax = 0f;
+                for (int d = 0; d < depth; d++) {
+                    absMax = Math.max(absMax, Math.abs(weight[o * depth + d]));
+                }
+                scales[o] = absMax > 0f ? absMax / QMAX : 1f;
+                float inverse = 1f / scales[o];
+                for (int d = 0; d < depth; d++) {
+                    q[o * depth + d] = QuantizedCnnBackend.quantize(weight[o * depth + d], inverse);
+                }
+            }
+            float inputScale = inputAbsMax > 0f ? inputAbsMax / QMAX : 1f;
+            return new QuantizedLayer(outChannels, depth, inputScale, scales, bias.clone(), q);
+        }
+
+        int byteSize() {
+            return 12 + outChannels * 8 + weight.length;
+        }
+
+        void write(ByteBuffer out) {
+            out.putInt(outChannels).putInt(depth).putFloat(inputScale);
+            for (float s : weightScale) out.putFloat(s);
+            for (float b : bias) out.putFloat(b);
+            out.put(weight);
+        }
+
+        static QuantizedLayer read(ByteBuffer in) {
+            int outChannels = in.getInt();
+            int depth = in.getInt();
+            float inputScale = in.getFloat();
+            float[] weightScale = new float[outChannels];
+            float[] bias = new float[outChannels];
+            for (int o = 0; o < outChannels; o++) weightScale[o] = in.getFloat();
+            for (int o = 0; o < outChannels; o++) bias[o] = in.getFloat();
+            byte[] weight = new byte[outChannels * depth];
+            in.get(weight);
+            return new QuantizedLayer(outChannels, depth, inputScale, weightScale, bias, weight);
+        }
+    }
+
+    /**
+     * Format (little-endian): int magic, int version, int inputSize, int convLayerCount, then
+     * each conv layer, fc1 and fc2 as: int outChannels, int depth, float inputScale,
+     * float[outChannels] weightScale, float[outChannels] bias, int8[outChannels * depth] weight.
+     */
+    public void write(OutputStream out) throws IOException {
+        int size = 16;
+        for (QuantizedLayer layer : convLayers) size += layer.byteSize();
+        size += fc1.byteSize() + fc2.byteSize();
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(inputSize).putInt(convLayers.length);
+        for (QuantizedLayer layer : convLayers) layer.write(buffer);
+        fc1.write(buffer);
+        fc2.write(buffer);
+        out.write(buffer.array());
+    }
+
+    public static QuantizedCnnBackend load(InputStream in) throws IOException {
+        return load(in, ForkJoinPool.commonPool());
+    }
+
+    public static QuantizedCnnBackend load(InputStream in, ForkJoinPool pool) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] chunk = new byte[64 * 1024];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            bytes.write(chunk, 0, read);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a quantized classifier file");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported quantized model version: " + version);
+            }
+            int inputSize = buffer.getInt();
+            QuantizedLayer[] convLayers = new QuantizedLayer[buffer.getInt()];
+            for (int i = 0; i < convLayers.length; i++) {
+                convLayers[i] = QuantizedLayer.read(buffer);
+            }
+            QuantizedLayer fc1 = QuantizedLayer.read(buffer);
+            QuantizedLayer fc2 = QuantizedLayer.read(buffer);
+            return new QuantizedCnnBackend(inputSize, convLayers, fc1, fc2, pool);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated quantized model file", e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.eddc;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Blocking access to the realtime database tree, so the sign-in, sign-up, password and history
+ * code runs unchanged against Firebase (FirebaseRealtimeStore) or an in-process JSON tree
+ * (LocalJsonTreeStore). Paths are slash-separated and relative to the root, as built by
+ * FirebasePaths. Values are what DataSnapshot.getValue() returns: String, Long, Double,
+ * Boolean or Map&lt;String, Object&gt;; Integer and Float are accepted on write.
+ *
+ * Every call except pushKey may wait on the network, so call them off the main thread.
+ */
+public interface RealtimeStore {
+
+    /** Returns the value at path, or null when nothing is stored there. */
+    Object get(String path) throws IOException;
+
+    /**
+     * Returns up to limit children of path in key order, starting after afterKey, or from the
+     * first child when afterKey is null.
+     */
+    LinkedHashMap<String, Object> getChildrenAfter(String path, String afterKey, int limit) throws IOException;
+
+    /** Replaces the value at path; null deletes it. */
+    void set(String path, Object value) throws IOException;
+
+    /** Applies every path to value write in one atomic update; null values delete. */
+    void update(Map<String, Object> values) throws IOException;
+
+    /**
+     * Writes value only if nothing is stored at path, atomically with respect to other writers.
+     *
+     * @return false when path already held a value
+     */
+    boolean setIfAbsent(String path, Object value) throws IOException;
+
+    /** Returns a new, chronologically ordered child key of path without a round trip. */
+    String pushKey(String path);
+
+    /**
+     * Runs listener every time the store (re)connects to its backend. Stores that are always
+     * connected never call it.
+     */
+    void addConnectedListener(Runnable listener);
+}
@@ -0,0 +1,93 @@
+package com.example.eddc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The remote half of the detection history: history/{phone}/{detectionId} in a RealtimeStore.
+ * HistorySyncEngine drives it from the device; DataLoadHarness drives it against the in-process
+ * store. All methods except newId may wait on the network.
+ */
+public class RemoteHistory {
+
+    /** One key-ordered page of records. */
+    public static class Page {
+        /** Records that parsed; records naming no class are skipped. */
+        public final List<DetectionRecord> records;
+        /** Key of the last child read, parsed or not, or null for an empty page. */
+        public final String lastKey;
+        /** Number of children read, including skipped ones. */
+        public final int size;
+
+        Page(List<DetectionRecord> records, String lastKey, int size) {
+            this.records = records;
+            this.lastKey = lastKey;
+            this.size = size;
+        }
+    }
+
+    private final RealtimeStore store;
+
+    public RemoteHistory(RealtimeStore store) {
+        this.store = store;
+    }
+
+    /** New detection ID; generated on the client, so it works offline. */
+    public String newId(String userId) {
+        return store.pushKey(FirebasePaths.history(userId));
+    }
+
+    /** Writes the records in one atomic multi-path update. */
+    public void push(String userId, List<DetectionRecord> records) throws IOException {
+        Map<String, Object> updates = new HashMap<>();
+        for (DetectionRecord record : records) {
+            updates.put(FirebasePaths.history(userId) + "/" + record.id, record.toMap());
+        }
+        store.update(updates);
+    }
+
+    /** Reads up to limit records in key (i.e. creation) order after afterKey. */
+    public Page pullAfter(String userId, String afterKey, int limit) throws IOException {
+        LinkedHashMap<String, Object> children =
+                store.getChildrenAfter(FirebasePaths.history(userId), afterKey, limit);
+
+        List<DetectionRecord> records = new ArrayList<>(children.size());
+        String lastKey = null;
+        for (Map.Entry<String, Object> child : children.entrySet()) {
+            lastKey = child.getKey();
+            if (child.getValue() instanceof Map) {
+                @SuppressWarnings("unchecked")
+                DetectionRecord record = DetectionRecord.fromMap(lastKey, (Map<String, Object>) child.getValue());
+                if (record != null) {
+                    records.add(record);
+                }
+            }
+        }
+        return new Page(records, lastKey, children.size());
+    }
+
+    /**
+     * Moves up to limit records from the pre-split users/{phone}/history node to
+     * history/{phone} in one atomic multi-path update.
+     *
+     * @return the number of records moved; 0 once the legacy node is empty
+     */
+    public int moveLegacyPage(String userId, int limit) throws IOException {
+        LinkedHashMap<String, Object> page =
+                store.getChildrenAfter(FirebasePaths.legacyHistory(userId), null, limit);
+        if (page.isEmpty()) {
+            return 0;
+        }
+        Map<String, Object> updates = new HashMap<>();
+        for (Map.Entry<String, Object> child : page.entrySet()) {
+            updates.put(FirebasePaths.history(userId) + "/" + child.getKey(), child.getValue());
+            updates.put(FirebasePaths.legacyHistory(userId) + "/" + child.getKey(), null);
+        }
+        store.update(updates);
+        return page.size();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.eddc;
+
+import android.graphics.Bitmap;
+
+/**
+ * Converts decoded bitmaps to opaque ARGB_8888 using bulk row-major pixel transfers.
+ * Replaces the per-pixel getPixel/setPixel loop, which costs two JNI calls per pixel.
+ */
+public class RgbConverter {
+
+    // Rows copied per getPixels/setPixels call; keeps the scratch buffer small for large photos
+    private static final int STRIP_ROWS = 32;
+
+    private int[] scratch = new int[0];
+
+    /**
+     * Returns an opaque ARGB_8888 copy of the bitmap, or the bitmap itself when it is
+     * already opaque ARGB_8888 (the usual case for decoded JPEG photos).
+     */
+    public synchronized Bitmap convert(Bitmap bitmap) {
+        if (bitmap.getConfig() == Bitmap.Config.ARGB_8888 && !bitmap.hasAlpha()) {
+            return bitmap;
+        }
+
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        Bitmap rgbBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+
+        int stripRows = Math.min(height, STRIP_ROWS);
+        int[] buffer = scratch(width * stripRows);
+
+        for (int y = 0; y < height; y += stripRows) {
+            int rows = Math.min(stripRows, height - y);
+            bitmap.getPixels(buffer, 0, width, 0, y, width, rows);
+            forceOpaque(buffer, 0, width * rows);
+            rgbBitmap.setPixels(buffer, 0, width, 0, y, width, rows);
+        }
+        return rgbBitmap;
+    }
+
+    /**
+     * Sets the alpha channel of every pixel in the range to 0xFF, keeping RGB unchanged.
+     * Equivalent to Color.rgb(Color.red(p), Color.green(p), Color.blue(p)).
+     */
+    static void forceOpaque(int[] pixels, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            pixels[i] |= 0xFF000000;
+        }
+    }
+
+    private int[] scratch(int size) {
+        if (scratch.length < size) {
+            scratch = new int[size];
+        }
+        return scratch;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.eddc;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Command-line check that RgbConverter's strip conversion gives the same pixels as the loop it
+ * replaced, which walked the bitmap column by column with getPixel/setPixel and rebuilt each
+ * pixel from its channels. Both run over int[] at 1, 4 and 12 MP, with arraycopy standing in
+ * for getPixels and setPixels. Fails with status 1 on the first size whose output differs.
+ * RgbConversionBenchmark in benchmarks/ times the two.
+ *
+ * Usage: RgbConverterCheck
+ */
+public class RgbConverterCheck {
+
+    // 4:3 sizes of about 1, 4 and 12 megapixels
+    private static final int[][] SIZES = {{1152, 864}, {2304, 1728}, {4000, 3000}};
+    static final int STRIP_ROWS = 32;
+
+    public static void main(String[] args) {
+        Random random = new Random(3);
+        for (int[] size : SIZES) {
+            int width = size[0];
+            int height = size[1];
+            int[] source = new int[width * height];
+            for (int i = 0; i < source.length; i++) {
+                source[i] = random.nextInt(); // Random alpha too, as in a PNG with transparency
+            }
+            int[] expected = new int[source.length];
+            int[] actual = new int[source.length];
+            perPixelColumnMajor(source, expected, width, height);
+            stripCopy(source, actual, new int[width * STRIP_ROWS], width, height);
+
+            boolean same = Arrays.equals(expected, actual);
+            System.out.println(width + "x" + height + ": " + (same ? "ok" : "FAIL: outputs differ"));
+            if (!same) {
+                System.exit(1);
+            }
+        }
+    }
+
+    // The old loop: x outer, y inner, one pixel read and one write per step
+    static void perPixelColumnMajor(int[] source, int[] target, int width, int height) {
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                int pixel = source[y * width + x];
+                int red = (pixel >> 16) & 0xFF;
+                int green = (pixel >> 8) & 0xFF;
+                int blue = pixel & 0xFF;
+                target[y * width + x] = 0xFF000000 | (red << 16) | (green << 8) | blue;
+            }
+        }
+    }
+
+    // RgbConverter.convert with arraycopy standing in for getPixels and setPixels
+    static void stripCopy(int[] source, int[] target, int[] scratch, int width, int height) {
+        for (int y = 0; y < height; y += STRIP_ROWS) {
+            int length = width * Math.min(STRIP_ROWS, height - y);
+            System.arraycopy(source, y * width, scratch, 0, length);
+            RgbConverter.forceOpaque(scratch, 0, length);
+            System.arraycopy(scratch, 0, target, y * width, length);
+        }
+    }
+}
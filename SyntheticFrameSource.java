@@ -0,0 +1,131 @@
+package com.example.eddc;
+
+import java.util.Locale;
+
+/**
+ * Feeds LiveFramePipeline with generated frames at a fixed rate, standing in for the camera on
+ * a plain JVM. Each frame is a moving ARGB gradient run through the same TensorPreprocessor as
+ * real images, so producer-side cost is realistic too.
+ *
+ * Run as a program to check the frame-dropping behaviour against a backend with a fixed
+ * inference time: the pipeline should settle at about 1000 / inference-ms results per second,
+ * drop the rest and keep latency under two inference times.
+ *
+ * Usage: SyntheticFrameSource [camera-fps] [inference-ms] [seconds] [frame-width] [frame-height]
+ */
+public class SyntheticFrameSource {
+
+    private final LiveFramePipeline pipeline;
+    private final TensorPreprocessor preprocessor;
+    private final int width;
+    private final int height;
+    private final long frameIntervalNanos;
+    private final int[] pixels;
+    private volatile boolean running;
+    private Thread thread;
+
+    public SyntheticFrameSource(LiveFramePipeline pipeline, int inputSize, int width, int height, double fps) {
+        this.pipeline = pipeline;
+        this.preprocessor = new TensorPreprocessor(inputSize);
+        this.width = width;
+        this.height = height;
+        this.frameIntervalNanos = (long) (1e9 / fps);
+        this.pixels = new int[width * height];
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this::produce, "synthetic-camera");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() throws InterruptedException {
+        running = false;
+        thread.join();
+    }
+
+    private void produce() {
+        long next = System.nanoTime();
+        int frame = 0;
+        while (running) {
+            fill(frame++);
+            long timestamp = System.nanoTime();
+            pipeline.offer(timestamp, out -> preprocessor.preprocess(pixels, width, height, out, 0));
+
+            next += frameIntervalNanos;
+            long sleep = next - System.nanoTime();
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep / 1_000_000, (int) (sleep % 1_000_000));
+                } catch (InterruptedException e) {
+                    return;
+                }
+            } else {
+                next = System.nanoTime(); // Fell behind; do not burst to catch up
+            }
+        }
+    }
+
+    private void fill(int frame) {
+        int shift = frame * 3;
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                int r = (x + shift) & 0xFF;
+                int g = (y + shift) & 0xFF;
+                int b = (x + y) & 0xFF;
+                pixels[row + x] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        double fps = args.length > 0 ? Double.parseDouble(args[0]) : 30;
+        long inferenceMillis = args.length > 1 ? Long.parseLong(args[1]) : 80;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int width = args.length > 3 ? Integer.parseInt(args[3]) : 640;
+        int height = args.length > 4 ? Integer.parseInt(args[4]) : 480;
+
+        int inputSize = ModelRegistry.INPUT_SIZE;
+        int numClasses = ModelRegistry.CLASS_NAMES.length;
+        ClassifierBackend backend = (input, batchSize) -> {
+            // Stands in for a model with a fixed forward time; reads the input like a real one
+            long end = System.nanoTime() + inferenceMillis * 1_000_000;
+            float sum = 0;
+            for (int i = 0; i < input.capacity(); i += 97) {
+                sum += input.get(i);
+            }
+            while (System.nanoTime() < end) {
+                // Busy, like a forward pass
+            }
+            float[] logits = new float[batchSize * numClasses];
+            logits[Math.abs((int) sum) % numClasses] = 1f;
+            return logits;
+        };
+
+        LiveFramePipeline pipeline = new LiveFramePipeline(backend, 3 * inputSize * inputSize, numClasses,
+                new LiveFramePipeline.Listener() {
+                    @Override
+                    public void onResult(float[] probabilities, long frameTimestampNanos) {
+                    }
+
+                    @Override
+                    public void onError(RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                });
+        SyntheticFrameSource source = new SyntheticFrameSource(pipeline, inputSize, width, height, fps);
+
+        System.out.println(String.format(Locale.US, "Camera %.0f fps at %dx%d, inference %d ms, %d s",
+                fps, width, height, inferenceMillis, seconds));
+        pipeline.start();
+        source.start();
+        for (int i = 0; i < seconds; i++) {
+            Thread.sleep(1000);
+            System.out.println(pipeline.getStats());
+        }
+        source.stop();
+        pipeline.stop();
+    }
+}
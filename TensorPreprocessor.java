@@ -0,0 +1,122 @@
+package com.example.eddc;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Resizes ARGB pixels to the model input size and writes ImageNet-normalized NCHW floats
+ * straight into a caller-owned FloatBuffer, in a single pass and without intermediate bitmaps.
+ * Plain Java so it can run outside Android.
+ */
+public class TensorPreprocessor {
+
+    // Normalization constants (must match training)
+    public static final float[] MEAN = {0.485f, 0.456f, 0.406f};
+    public static final float[] STD = {0.229f, 0.224f, 0.225f};
+
+    private final int outputSize;
+
+    // (value / 255 - mean) / std folded into value * scale + bias
+    private final float[] scale = new float[3];
+    private final float[] bias = new float[3];
+
+    // Bilinear sampling tables, rebuilt only when the source size changes
+    private final int[] x0, x1, y0, y1;
+    private final float[] xFrac, yFrac;
+    private int tableWidth = -1;
+    private int tableHeight = -1;
+
+    public TensorPreprocessor(int outputSize) {
+        this.outputSize = outputSize;
+        for (int c = 0; c < 3; c++) {
+            scale[c] = 1f / (255f * STD[c]);
+            bias[c] = -MEAN[c] / STD[c];
+        }
+        x0 = new int[outputSize];
+        x1 = new int[outputSize];
+        y0 = new int[outputSize];
+        y1 = new int[outputSize];
+        xFrac = new float[outputSize];
+        yFrac = new float[outputSize];
+    }
+
+    public int getOutputSize() {
+        return outputSize;
+    }
+
+    /** Number of floats one image occupies in the output buffer (3 * size * size). */
+    public int getTensorLength() {
+        return 3 * outputSize * outputSize;
+    }
+
+    /**
+     * Bilinearly resizes the row-major ARGB pixels to outputSize x outputSize and writes the
+     * normalized R, G and B planes into out, starting at the absolute float index offset.
+     * The buffer position is left untouched.
+     */
+    public synchronized void preprocess(int[] argb, int srcWidth, int srcHeight, FloatBuffer out, int offset) {
+        prepareTables(srcWidth, srcHeight);
+
+        int plane = outputSize * outputSize;
+        int redBase = offset;
+        int greenBase = offset + plane;
+        int blueBase = offset + 2 * plane;
+
+        int index = 0;
+        for (int y = 0; y < outputSize; y++) {
+            int row0 = y0[y] * srcWidth;
+            int row1 = y1[y] * srcWidth;
+            float fy = yFrac[y];
+
+            for (int x = 0; x < outputSize; x++, index++) {
+                float fx = xFrac[x];
+                int p00 = argb[row0 + x0[x]];
+                int p01 = argb[row0 + x1[x]];
+                int p10 = argb[row1 + x0[x]];
+                int p11 = argb[row1 + x1[x]];
+
+                float r = lerp2((p00 >> 16) & 0xFF, (p01 >> 16) & 0xFF, (p10 >> 16) & 0xFF, (p11 >> 16) & 0xFF, fx, fy);
+                float g = lerp2((p00 >> 8) & 0xFF, (p01 >> 8) & 0xFF, (p10 >> 8) & 0xFF, (p11 >> 8) & 0xFF, fx, fy);
+                float b = lerp2(p00 & 0xFF, p01 & 0xFF, p10 & 0xFF, p11 & 0xFF, fx, fy);
+
+                out.put(redBase + index, r * scale[0] + bias[0]);
+                out.put(greenBase + index, g * scale[1] + bias[1]);
+                out.put(blueBase + index, b * scale[2] + bias[2]);
+            }
+        }
+    }
+
+    private static float lerp2(int v00, int v01, int v10, int v11, float fx, float fy) {
+        float top = v00 + (v01 - v00) * fx;
+        float bottom = v10 + (v11 - v10) * fx;
+        return top + (bottom - top) * fy;
+    }
+
+    private void prepareTables(int srcWidth, int srcHeight) {
+        if (srcWidth == tableWidth && srcHeight == tableHeight) {
+            return;
+        }
+        fillAxis(srcWidth, x0, x1, xFrac);
+        fillAxis(srcHeight, y0, y1, yFrac);
+        tableWidth = srcWidth;
+        tableHeight = srcHeight;
+    }
+
+    // Pixel-center aligned mapping, clamped at the edges
+    private void fillAxis(int srcLength, int[] lo, int[] hi, float[] frac) {
+        float ratio = (float) srcLength / outputSize;
+        for (int i = 0; i < outputSize; i++) {
+            float src = (i + 0.5f) * ratio - 0.5f;
+            if (src < 0f) {
+                src = 0f;
+            }
+            int base = (int) src;
+            if (base >= srcLength - 1) {
+                base = srcLength - 1;
+                src = base;
+            }
+            lo[i] = base;
+            hi[i] = Math.min(base + 1, srcLength - 1);
+            frac[i] = src - base;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.eddc;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Produces the stored renditions of a detection image from one decoded bitmap: the original
+ * as JPEG, a medium preview and a square list thumbnail as WebP. The preview is scaled from
+ * the source and the thumbnail from the preview, so the source is never decoded twice.
+ */
+public class ThumbnailGenerator {
+
+    public static final int DEFAULT_THUMBNAIL_SIZE = 128;
+    public static final int DEFAULT_PREVIEW_SIZE = 512;
+
+    private static final int ORIGINAL_QUALITY = 70;
+    private static final int WEBP_QUALITY = 75;
+
+    private final int thumbnailSize;
+    private final int previewSize;
+
+    /** Encoded renditions of one image. */
+    public static class Renditions {
+        public final byte[] original;
+        public final byte[] preview;
+        public final byte[] thumbnail;
+        public final int width;
+        public final int height;
+
+        Renditions(byte[] original, byte[] preview, byte[] thumbnail, int width, int height) {
+            this.original = original;
+            this.preview = preview;
+            this.thumbnail = thumbnail;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    public ThumbnailGenerator() {
+        this(DEFAULT_THUMBNAIL_SIZE, DEFAULT_PREVIEW_SIZE);
+    }
+
+    /**
+     * @param thumbnailSize side of the square, center-cropped thumbnail in pixels
+     * @param previewSize   longest side of the preview in pixels; images already smaller are not upscaled
+     */
+    public ThumbnailGenerator(int thumbnailSize, int previewSize) {
+        if (thumbnailSize < 1 || previewSize < thumbnailSize) {
+            throw new IllegalArgumentException("Need 0 < thumbnailSize <= previewSize");
+        }
+        this.thumbnailSize = thumbnailSize;
+        this.previewSize = previewSize;
+    }
+
+    /** Encodes all renditions. Compression is slow, so call it off the main thread. */
+    public Renditions generate(Bitmap source) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+
+        Bitmap preview = scaleToFit(source, previewSize);
+        Bitmap thumbnail = centerCropSquare(preview, thumbnailSize);
+
+        Renditions renditions = new Renditions(
+                encode(source, Bitmap.CompressFormat.JPEG, ORIGINAL_QUALITY),
+                encode(preview, webpFormat(), WEBP_QUALITY),
+                encode(thumbnail, webpFormat(), WEBP_QUALITY),
+                width, height);
+
+        if (thumbnail != preview) {
+            thumbnail.recycle();
+        }
+        if (preview != source) {
+            preview.recycle();
+        }
+        return renditions;
+    }
+
+    private static Bitmap scaleToFit(Bitmap source, int maxSide) {
+        int longest = Math.max(source.getWidth(), source.getHeight());
+        if (longest <= maxSide) {
+            return source;
+        }
+        float scale = (float) maxSide / longest;
+        int width = Math.max(1, Math.round(source.getWidth() * scale));
+        int height = Math.max(1, Math.round(source.getHeight() * scale));
+        return Bitmap.createScaledBitmap(source, width, height, true);
+    }
+
+    private static Bitmap centerCropSquare(Bitmap source, int side) {
+        int shortest = Math.min(source.getWidth(), source.getHeight());
+        int left = (source.getWidth() - shortest) / 2;
+        int top = (source.getHeight() - shortest) / 2;
+        Bitmap square = shortest == source.getWidth() && shortest == source.getHeight()
+                ? source
+                : Bitmap.createBitmap(source, left, top, shortest, shortest);
+        if (shortest <= side) {
+            return square;
+        }
+        Bitmap scaled = Bitmap.createScaledBitmap(square, side, side, true);
+        if (square != source) {
+            square.recycle();
+        }
+        return scaled;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat webpFormat() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY
+                : Bitmap.CompressFormat.WEBP;
+    }
+
+    private static byte[] encode(Bitmap bitmap, Bitmap.CompressFormat format, int quality) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.compress(format, quality, out);
+        return out.toByteArray();
+    }
+}
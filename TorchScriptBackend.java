@@ -0,0 +1,53 @@
+package com.example.eddc;
+
+import org.pytorch.IValue;
+import org.pytorch.Module;
+import org.pytorch.Tensor;
+
+import java.nio.FloatBuffer;
+
+/**
+ * ClassifierBackend on top of a TorchScript Module.
+ * Tensors wrap slices of the caller's direct buffer, so no input data is copied.
+ */
+public class TorchScriptBackend implements ClassifierBackend {
+
+    private final Module module;
+    private final int inputSize;
+
+    // Tensors cached per batch size for the last input buffer seen
+    private FloatBuffer cachedInput;
+    private Tensor[] tensorsBySize = new Tensor[0];
+
+    public TorchScriptBackend(Module module, int inputSize) {
+        this.module = module;
+        this.inputSize = inputSize;
+    }
+
+    public Module getModule() {
+        return module;
+    }
+
+    @Override
+    public synchronized float[] forward(FloatBuffer input, int batchSize) {
+        Tensor outputTensor = module.forward(IValue.from(tensorFor(input, batchSize))).toTensor();
+        return outputTensor.getDataAsFloatArray();
+    }
+
+    private Tensor tensorFor(FloatBuffer input, int batchSize) {
+        if (input != cachedInput || tensorsBySize.length < batchSize) {
+            cachedInput = input;
+            tensorsBySize = new Tensor[Math.max(batchSize, tensorsBySize.length)];
+        }
+
+        Tensor tensor = tensorsBySize[batchSize - 1];
+        if (tensor == null) {
+            FloatBuffer view = input.duplicate();
+            view.position(0);
+            view.limit(batchSize * 3 * inputSize * inputSize);
+            tensor = Tensor.fromBlob(view.slice(), new long[]{batchSize, 3, inputSize, inputSize});
+            tensorsBySize[batchSize - 1] = tensor;
+        }
+        return tensor;
+    }
+}
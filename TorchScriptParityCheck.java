@@ -0,0 +1,98 @@
+package com.example.eddc;
+
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Locale;
+
+/**
+ * Command-line check that JavaCnnBackend reproduces the TorchScript model. export_weights.py,
+ * run on the .pt file, writes the weights together with the TorchScript logits for a few fixed
+ * inputs; this rebuilds the same inputs, runs them through the Java backend and fails when any
+ * logit differs by more than the tolerance. Exits with status 1 on failure.
+ *
+ * Usage: TorchScriptParityCheck weights-file reference-file [tolerance]
+ */
+public class TorchScriptParityCheck {
+
+    private static final int REFERENCE_MAGIC = 0x52434445; // "EDCR" little-endian
+    private static final int REFERENCE_VERSION = 1;
+    private static final float DEFAULT_TOLERANCE = 1e-4f;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: TorchScriptParityCheck <weights-file> <reference-file> [tolerance]");
+            System.exit(2);
+        }
+        float tolerance = args.length > 2 ? Float.parseFloat(args[2]) : DEFAULT_TOLERANCE;
+
+        int inputSize;
+        float[][] expected;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(args[1]))) {
+            if (readIntLe(in) != REFERENCE_MAGIC || readIntLe(in) != REFERENCE_VERSION) {
+                throw new IOException("Not a reference logits file: " + args[1]);
+            }
+            inputSize = readIntLe(in);
+            expected = new float[readIntLe(in)][readIntLe(in)];
+            for (float[] logits : expected) {
+                for (int i = 0; i < logits.length; i++) {
+                    logits[i] = Float.intBitsToFloat(readIntLe(in));
+                }
+            }
+        }
+
+        JavaCnnBackend backend;
+        try (InputStream in = new FileInputStream(args[0])) {
+            backend = JavaCnnBackend.load(in, inputSize);
+        }
+
+        if (backend.getNumClasses() != expected[0].length) {
+            System.out.println("Parity check FAILED: " + backend.getNumClasses() + " classes, reference has "
+                    + expected[0].length);
+            System.exit(1);
+        }
+        FloatBuffer input = ByteBuffer.allocateDirect(3 * inputSize * inputSize * 4)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+        boolean ok = true;
+        for (int sample = 0; sample < expected.length; sample++) {
+            input.clear();
+            input.put(referenceInput(sample, inputSize));
+            float[] actual = backend.forward(input, 1);
+
+            float maxError = 0;
+            for (int i = 0; i < actual.length; i++) {
+                maxError = Math.max(maxError, Math.abs(actual[i] - expected[sample][i]));
+            }
+            boolean sameClass = ClassScores.argMax(actual) == ClassScores.argMax(expected[sample]);
+            ok &= maxError <= tolerance && sameClass;
+            System.out.println(String.format(Locale.US, "input %d: max abs error %.2e, top class %s %s",
+                    sample, maxError, sameClass ? "matches" : "differs",
+                    maxError <= tolerance && sameClass ? "ok" : "FAIL"));
+        }
+
+        System.out.println(ok ? "Java backend matches TorchScript within " + tolerance : "Parity check FAILED");
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    // Same pattern as reference_input() in export_weights.py; the double division rounded
+    // to float gives bit-identical inputs on both sides
+    static float[] referenceInput(int sample, int size) {
+        float[] x = new float[3 * size * size];
+        for (int i = 0; i < x.length; i++) {
+            long k = ((long) i * 7919 + (long) sample * 104729 + 13) % 2001;
+            x[i] = (float) ((k - 1000) / 400.0);
+        }
+        return x;
+    }
+
+    private static int readIntLe(DataInputStream in) throws IOException {
+        return Integer.reverseBytes(in.readInt());
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.eddc;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Command-line check of YuvTensorConverter. For every rotation it compares the one-pass tensor
+ * with a reference built the Bitmap way (whole frame to 8-bit ARGB, crop and rotate the
+ * square, then TensorPreprocessor) on a padded, semi-planar frame like the ones camera HALs
+ * deliver. A rotation whose tensor differs by more than the rounding of the 8-bit route fails
+ * the run with status 1. YuvConversionBenchmark in benchmarks/ times the two routes.
+ *
+ * Usage: YuvConverterCheck [width] [height]
+ */
+public class YuvConverterCheck {
+
+    // Reference rounds to 8 bits, the converter does not: at most 0.5 / 255 / min(STD)
+    private static final float TOLERANCE = 0.01f;
+    private static final int ROW_PADDING = 64;
+
+    public static void main(String[] args) {
+        int width = args.length > 0 ? Integer.parseInt(args[0]) : 640;
+        int height = args.length > 1 ? Integer.parseInt(args[1]) : 480;
+        int size = ModelRegistry.INPUT_SIZE;
+
+        Frame frame = new Frame(width, height, new Random(7));
+        YuvTensorConverter converter = new YuvTensorConverter(size);
+        TensorPreprocessor preprocessor = new TensorPreprocessor(size);
+        FloatBuffer actual = FloatBuffer.allocate(converter.getTensorLength());
+        FloatBuffer expected = FloatBuffer.allocate(converter.getTensorLength());
+        int side = Math.min(width, height);
+        int[] argb = new int[width * height];
+        int[] square = new int[side * side];
+
+        boolean ok = true;
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            frame.convert(converter, rotation, actual);
+            bitmapRoute(frame, rotation, argb, square, preprocessor, expected);
+            float maxError = 0;
+            for (int i = 0; i < actual.capacity(); i++) {
+                maxError = Math.max(maxError, Math.abs(actual.get(i) - expected.get(i)));
+            }
+            ok &= maxError <= TOLERANCE;
+            System.out.println(String.format(Locale.US, "rotation %3d: max abs error %.5f %s",
+                    rotation, maxError, maxError <= TOLERANCE ? "ok" : "FAIL"));
+        }
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    /** The route the converter replaced; argb and square are scratch of the frame and crop size. */
+    static void bitmapRoute(Frame frame, int rotation, int[] argb, int[] square,
+                            TensorPreprocessor preprocessor, FloatBuffer out) {
+        int width = frame.width;
+        int height = frame.height;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                float luma = frame.y.get(y * frame.yRowStride + x) & 0xFF;
+                int chroma = (y / 2) * frame.uvRowStride + (x / 2) * 2;
+                float u = (frame.u.get(chroma) & 0xFF) - 128f;
+                float v = (frame.v.get(chroma) & 0xFF) - 128f;
+                int r = toByte(luma + 1.402f * v);
+                int g = toByte(luma - 0.344136f * u - 0.714136f * v);
+                int b = toByte(luma + 1.772f * u);
+                argb[y * width + x] = 0xFF000000 | r << 16 | g << 8 | b;
+            }
+        }
+
+        int side = Math.min(width, height);
+        int left = (width - side) / 2;
+        int top = (height - side) / 2;
+        for (int sy = 0; sy < side; sy++) {
+            for (int sx = 0; sx < side; sx++) {
+                int dx, dy;
+                switch (rotation) {
+                    case 90: dx = side - 1 - sy; dy = sx; break;
+                    case 180: dx = side - 1 - sx; dy = side - 1 - sy; break;
+                    case 270: dx = sy; dy = side - 1 - sx; break;
+                    default: dx = sx; dy = sy; break;
+                }
+                square[dy * side + dx] = argb[(top + sy) * width + left + sx];
+            }
+        }
+        preprocessor.preprocess(square, side, side, out, 0);
+    }
+
+    private static int toByte(float value) {
+        return Math.max(0, Math.min(255, Math.round(value)));
+    }
+
+    /** Semi-planar frame (interleaved U and V, pixel stride 2) with padded rows. */
+    static class Frame {
+        final int width;
+        final int height;
+        final int yRowStride;
+        final int uvRowStride;
+        final ByteBuffer y;
+        final ByteBuffer u;
+        final ByteBuffer v;
+
+        Frame(int width, int height, Random random) {
+            this.width = width;
+            this.height = height;
+            this.yRowStride = width + ROW_PADDING;
+            this.uvRowStride = width + ROW_PADDING;
+            byte[] luma = new byte[yRowStride * height];
+            byte[] chroma = new byte[uvRowStride * (height / 2)];
+            for (int row = 0; row < height; row++) {
+                for (int x = 0; x < width; x++) {
+                    luma[row * yRowStride + x] = (byte) ((x * 255 / width + row / 3 + random.nextInt(24)) & 0xFF);
+                }
+            }
+            for (int row = 0; row < height / 2; row++) {
+                for (int x = 0; x < width / 2; x++) {
+                    chroma[row * uvRowStride + 2 * x] = (byte) (96 + (x + row) % 64);
+                    chroma[row * uvRowStride + 2 * x + 1] = (byte) (160 - random.nextInt(64));
+                }
+            }
+            this.y = ByteBuffer.wrap(luma);
+            this.u = ByteBuffer.wrap(chroma);
+            ByteBuffer shifted = ByteBuffer.wrap(chroma);
+            shifted.position(1);
+            this.v = shifted.slice();
+        }
+
+        void convert(YuvTensorConverter converter, int rotation, FloatBuffer out) {
+            converter.convert(y, yRowStride, 1, u, v, uvRowStride, 2, width, height, rotation, out, 0);
+        }
+    }
+}
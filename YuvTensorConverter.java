@@ -0,0 +1,187 @@
+package com.example.eddc;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * Converts YUV_420_888 camera frames straight into the model input: the centered square is
+ * turned upright, bilinearly resized to outputSize, converted to RGB and ImageNet-normalized
+ * into a caller-owned FloatBuffer, in one pass over the output pixels. Only the source pixels
+ * that are sampled are read, so no full-frame ARGB copy or Bitmap is made.
+ *
+ * Sampling matches the Bitmap route (full-frame YUV to ARGB, crop, rotate, then
+ * TensorPreprocessor): each output pixel blends the same four source pixels, each converted
+ * with its own Y and its 2x2 block's chroma. Planes may have any row and pixel strides. Plain
+ * Java so it can run outside Android.
+ */
+public class YuvTensorConverter {
+
+    private final int outputSize;
+
+    // (value / 255 - mean) / std folded into value * scale + bias
+    private final float[] scale = new float[3];
+    private final float[] bias = new float[3];
+
+    // Per output column (x) and row (y): plane offsets of the two neighbours and the blend weight
+    private final int[] lumaX0, lumaX1, chromaX0, chromaX1;
+    private final int[] lumaY0, lumaY1, chromaY0, chromaY1;
+    private final float[] frac;
+
+    // Neighbour colours of the current output pixel
+    private final float[] p00 = new float[3], p01 = new float[3], p10 = new float[3], p11 = new float[3];
+
+    // Geometry the tables were built for
+    private int tableWidth = -1;
+    private int tableHeight = -1;
+    private int tableRotation = -1;
+    private int tableLumaRowStride, tableLumaPixelStride, tableChromaRowStride, tableChromaPixelStride;
+
+    public YuvTensorConverter(int outputSize) {
+        this.outputSize = outputSize;
+        for (int c = 0; c < 3; c++) {
+            scale[c] = 1f / (255f * TensorPreprocessor.STD[c]);
+            bias[c] = -TensorPreprocessor.MEAN[c] / TensorPreprocessor.STD[c];
+        }
+        lumaX0 = new int[outputSize];
+        lumaX1 = new int[outputSize];
+        chromaX0 = new int[outputSize];
+        chromaX1 = new int[outputSize];
+        lumaY0 = new int[outputSize];
+        lumaY1 = new int[outputSize];
+        chromaY0 = new int[outputSize];
+        chromaY1 = new int[outputSize];
+        frac = new float[outputSize];
+    }
+
+    /** Number of floats one image occupies in the output buffer (3 * size * size). */
+    public int getTensorLength() {
+        return 3 * outputSize * outputSize;
+    }
+
+    /**
+     * Writes the normalized R, G and B planes of the frame's centered square into out, starting
+     * at the absolute float index offset. The buffer positions are left untouched.
+     *
+     * @param rotationDegrees clockwise rotation that makes the frame upright: 0, 90, 180 or 270
+     */
+    public synchronized void convert(ByteBuffer yPlane, int yRowStride, int yPixelStride,
+                                     ByteBuffer uPlane, ByteBuffer vPlane, int uvRowStride, int uvPixelStride,
+                                     int width, int height, int rotationDegrees, FloatBuffer out, int offset) {
+        prepareTables(width, height, rotationDegrees, yRowStride, yPixelStride, uvRowStride, uvPixelStride);
+
+        int plane = outputSize * outputSize;
+        int redBase = offset;
+        int greenBase = offset + plane;
+        int blueBase = offset + 2 * plane;
+
+        int index = 0;
+        for (int y = 0; y < outputSize; y++) {
+            float fy = frac[y];
+            for (int x = 0; x < outputSize; x++, index++) {
+                float fx = frac[x];
+                rgb(yPlane, uPlane, vPlane, lumaX0[x] + lumaY0[y], chromaX0[x] + chromaY0[y], p00);
+                rgb(yPlane, uPlane, vPlane, lumaX1[x] + lumaY0[y], chromaX1[x] + chromaY0[y], p01);
+                rgb(yPlane, uPlane, vPlane, lumaX0[x] + lumaY1[y], chromaX0[x] + chromaY1[y], p10);
+                rgb(yPlane, uPlane, vPlane, lumaX1[x] + lumaY1[y], chromaX1[x] + chromaY1[y], p11);
+
+                out.put(redBase + index, lerp2(p00[0], p01[0], p10[0], p11[0], fx, fy) * scale[0] + bias[0]);
+                out.put(greenBase + index, lerp2(p00[1], p01[1], p10[1], p11[1], fx, fy) * scale[1] + bias[1]);
+                out.put(blueBase + index, lerp2(p00[2], p01[2], p10[2], p11[2], fx, fy) * scale[2] + bias[2]);
+            }
+        }
+    }
+
+    // Full-range BT.601, as camera JPEGs use; clamped like an 8-bit ARGB conversion
+    private static void rgb(ByteBuffer yPlane, ByteBuffer uPlane, ByteBuffer vPlane,
+                            int lumaIndex, int chromaIndex, float[] out) {
+        float luma = yPlane.get(lumaIndex) & 0xFF;
+        float u = (uPlane.get(chromaIndex) & 0xFF) - 128f;
+        float v = (vPlane.get(chromaIndex) & 0xFF) - 128f;
+        out[0] = clamp(luma + 1.402f * v);
+        out[1] = clamp(luma - 0.344136f * u - 0.714136f * v);
+        out[2] = clamp(luma + 1.772f * u);
+    }
+
+    private static float clamp(float value) {
+        return value < 0f ? 0f : (value > 255f ? 255f : value);
+    }
+
+    private static float lerp2(float v00, float v01, float v10, float v11, float fx, float fy) {
+        float top = v00 + (v01 - v00) * fx;
+        float bottom = v10 + (v11 - v10) * fx;
+        return top + (bottom - top) * fy;
+    }
+
+    private void prepareTables(int width, int height, int rotation, int yRowStride, int yPixelStride,
+                               int uvRowStride, int uvPixelStride) {
+        if (width == tableWidth && height == tableHeight && rotation == tableRotation
+                && yRowStride == tableLumaRowStride && yPixelStride == tableLumaPixelStride
+                && uvRowStride == tableChromaRowStride && uvPixelStride == tableChromaPixelStride) {
+            return;
+        }
+        if (rotation != 0 && rotation != 90 && rotation != 180 && rotation != 270) {
+            throw new IllegalArgumentException("Unsupported rotation " + rotation);
+        }
+
+        int side = Math.min(width, height);
+        int left = (width - side) / 2;
+        int top = (height - side) / 2;
+
+        // Bilinear positions in the upright square, pixel-center aligned like TensorPreprocessor
+        int[] lo = new int[outputSize];
+        int[] hi = new int[outputSize];
+        float ratio = (float) side / outputSize;
+        for (int i = 0; i < outputSize; i++) {
+            float src = (i + 0.5f) * ratio - 0.5f;
+            if (src < 0f) {
+                src = 0f;
+            }
+            int base = (int) src;
+            if (base >= side - 1) {
+                base = side - 1;
+                src = base;
+            }
+            lo[i] = base;
+            hi[i] = Math.min(base + 1, side - 1);
+            frac[i] = src - base;
+        }
+
+        // Upright x walks the source along a row for 0 and 180 degrees, down a column for 90 and 270
+        boolean xAlongRow = rotation == 0 || rotation == 180;
+        boolean xReversed = rotation == 90 || rotation == 180;
+        boolean yReversed = rotation == 180 || rotation == 270;
+        for (int i = 0; i < outputSize; i++) {
+            int x0 = xReversed ? side - 1 - lo[i] : lo[i];
+            int x1 = xReversed ? side - 1 - hi[i] : hi[i];
+            int y0 = yReversed ? side - 1 - lo[i] : lo[i];
+            int y1 = yReversed ? side - 1 - hi[i] : hi[i];
+            if (xAlongRow) {
+                lumaX0[i] = (left + x0) * yPixelStride;
+                lumaX1[i] = (left + x1) * yPixelStride;
+                chromaX0[i] = ((left + x0) / 2) * uvPixelStride;
+                chromaX1[i] = ((left + x1) / 2) * uvPixelStride;
+                lumaY0[i] = (top + y0) * yRowStride;
+                lumaY1[i] = (top + y1) * yRowStride;
+                chromaY0[i] = ((top + y0) / 2) * uvRowStride;
+                chromaY1[i] = ((top + y1) / 2) * uvRowStride;
+            } else {
+                lumaX0[i] = (top + x0) * yRowStride;
+                lumaX1[i] = (top + x1) * yRowStride;
+                chromaX0[i] = ((top + x0) / 2) * uvRowStride;
+                chromaX1[i] = ((top + x1) / 2) * uvRowStride;
+                lumaY0[i] = (left + y0) * yPixelStride;
+                lumaY1[i] = (left + y1) * yPixelStride;
+                chromaY0[i] = ((left + y0) / 2) * uvPixelStride;
+                chromaY1[i] = ((left + y1) / 2) * uvPixelStride;
+            }
+        }
+
+        tableWidth = width;
+        tableHeight = height;
+        tableRotation = rotation;
+        tableLumaRowStride = yRowStride;
+        tableLumaPixelStride = yPixelStride;
+        tableChromaRowStride = uvRowStride;
+        tableChromaPixelStride = uvPixelStride;
+    }
+}
@@ -8,7 +8,6 @@ import android.widget.EditText;
 import android.widget.ProgressBar;
 import android.widget.Toast;
 import androidx.activity.EdgeToEdge;
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
@@ -21,19 +20,15 @@ import com.google.firebase.auth.FirebaseAuthInvalidCredentialsException;
 import com.google.firebase.auth.FirebaseAuthUserCollisionException;
 import com.google.firebase.auth.FirebaseAuthWeakPasswordException;
 import com.google.firebase.auth.PhoneAuthOptions;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ServerValue;
-import com.google.firebase.database.ValueEventListener;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Pattern;
 
 public class account_creation extends AppCompatActivity {
     private static final String TAG = "AccountCreation";
-    private static final String FIREBASE_URL = "https://eye-disease-detection-6a200-default-rtdb.asia-southeast1.firebasedatabase.app";
 
     // Pattern for validating phone numbers (simple 10-digit number)
     private static final Pattern PHONE_PATTERN = Pattern.compile("^[0-9]{10}$");
@@ -46,8 +41,7 @@ public class account_creation extends AppCompatActivity {
     private Button btnCreateAccount;
     private ProgressBar progressBar;
 
-    private FirebaseDatabase database;
-    private DatabaseReference usersRef;
+    private final ExecutorService authExecutor = Executors.newSingleThreadExecutor();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -74,10 +68,6 @@ public class account_creation extends AppCompatActivity {
             Log.w(TAG, "ProgressBar not found in layout, progress won't be shown");
         }
 
-        // Initialize Firebase
-        database = FirebaseDatabase.getInstance(FIREBASE_URL);
-        usersRef = database.getReference("users");
-
         // Set up click listener for create account button
         btnCreateAccount.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -105,31 +95,8 @@ public class account_creation extends AppCompatActivity {
         // Show progress
         showProgress(true);
 
-        // First check if phone number already exists
-        usersRef.child(phone).addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                if (dataSnapshot.exists()) {
-                    // Phone number already registered
-                    showProgress(false);
-                    Toast.makeText(account_creation.this,
-                            "This phone number is already registered. Please use a different number or try logging in.",
-                            Toast.LENGTH_LONG).show();
-                } else {
-                    // Phone number is available, proceed with account creation
-                    saveUserToDatabase(phone, password);
-                }
-            }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError databaseError) {
-                showProgress(false);
-                Log.e(TAG, "Firebase database error: " + databaseError.getMessage());
-                Toast.makeText(account_creation.this,
-                        "Database error: " + databaseError.getMessage(),
-                        Toast.LENGTH_SHORT).show();
-            }
-        });
+        // Registration hashes the password and waits on the database, so it runs off the main thread
+        authExecutor.execute(() -> register(phone, password));
     }
 
     private boolean validateInputs(String phone, String password, String confirmPassword) {
@@ -177,37 +144,45 @@ public class account_creation extends AppCompatActivity {
         return true;
     }
 
-    private void saveUserToDatabase(String phone, String password) {
-        // Create user data object
-        HashMap<String, Object> user = new HashMap<>();
-        user.put("password", hashPassword(password)); // Still keeping password (you can hash this securely later)
-
-        // Save to Firebase
-        usersRef.child(phone).setValue(user)
-                .addOnSuccessListener(aVoid -> {
+    // Runs on authExecutor
+    private void register(String phone, String password) {
+        AccountRepository accounts = new AccountRepository(
+                FirebaseRealtimeStore.getInstance(), PasswordHasher.forDevice(getApplicationContext()));
+        try {
+            // Stores a salted PBKDF2 hash, never the password itself
+            boolean created = accounts.register(phone, password);
+            runOnUiThread(() -> {
+                showProgress(false);
+                if (created) {
                     Log.d(TAG, "User saved successfully");
-                    showProgress(false);
                     Toast.makeText(account_creation.this,
                             "Account created successfully! You can now login.",
                             Toast.LENGTH_SHORT).show();
 
                     // Navigate to login screen
                     finish();
-                })
-                .addOnFailureListener(e -> {
-                    showProgress(false);
-                    Log.e(TAG, "Failed to save user: " + e.getMessage());
+                } else {
+                    // Phone number already registered
                     Toast.makeText(account_creation.this,
-                            "Failed to create account: " + e.getMessage(),
-                            Toast.LENGTH_SHORT).show();
-                });
+                            "This phone number is already registered. Please use a different number or try logging in.",
+                            Toast.LENGTH_LONG).show();
+                }
+            });
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to save user: " + e.getMessage());
+            runOnUiThread(() -> {
+                showProgress(false);
+                Toast.makeText(account_creation.this,
+                        "Failed to create account: " + e.getMessage(),
+                        Toast.LENGTH_SHORT).show();
+            });
+        }
     }
 
-    private String hashPassword(String password) {
-        // WARNING: This is not secure and only for demonstration
-        // In a real app, use a secure hashing algorithm with salt
-        // Consider using Firebase Authentication instead
-        return password;
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        authExecutor.shutdown();
     }
 
     private void showProgress(boolean show) {
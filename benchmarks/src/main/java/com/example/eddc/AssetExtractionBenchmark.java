@@ -0,0 +1,74 @@
+package com.example.eddc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Model extraction on first launch: AssetExtractor's file-channel and stream loops, each with
+ * the fsync and rename extract() does, against the old 15 KB byte[] copy without either, on
+ * 5, 50 and 200 MB files. The source stays in the page cache, so reads are not measured.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class AssetExtractionBenchmark {
+
+    @Param({"5", "50", "200"})
+    public int sizeMb;
+
+    private File dir;
+    private File source;
+    private File target;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("asset-extraction").toFile();
+        source = new File(dir, "model.bin");
+        target = new File(dir, "model.out");
+        AssetExtractorCheck.generate(source, sizeMb * 1024L * 1024L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        source.delete();
+        target.delete();
+        dir.delete();
+    }
+
+    @Benchmark
+    public long fileChannel() throws IOException {
+        AssetExtractorCheck.extractFd(source, 0, source.length(), target);
+        return target.length();
+    }
+
+    @Benchmark
+    public long stream() throws IOException {
+        AssetExtractorCheck.extractStream(source, target);
+        return target.length();
+    }
+
+    @Benchmark
+    public long legacyByteArray() throws IOException {
+        AssetExtractorCheck.legacyCopy(source, target);
+        return target.length();
+    }
+}
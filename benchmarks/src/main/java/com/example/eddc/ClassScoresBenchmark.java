@@ -0,0 +1,48 @@
+package com.example.eddc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Softmax and arg-max over one output vector of the model. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ClassScoresBenchmark {
+
+    private final float[] logits = new float[ModelRegistry.CLASS_NAMES.length];
+    private float[] probabilities;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < logits.length; i++) {
+            logits[i] = (float) (random.nextGaussian() * 4);
+        }
+        probabilities = ClassScores.softmax(logits);
+    }
+
+    @Benchmark
+    public float[] softmax() {
+        return ClassScores.softmax(logits);
+    }
+
+    @Benchmark
+    public int argMax() {
+        return ClassScores.argMax(probabilities, probabilities.length);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.eddc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * The bitmapToBase64 encode: JPEG at the quality ThumbnailGenerator uses for the stored
+ * original, then Base64. ImageIO stands in for Bitmap.compress, which needs a device.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EncodeBenchmark {
+
+    private static final float JPEG_QUALITY = 0.70f;
+
+    private BufferedImage image;
+    private ImageWriter writer;
+
+    @Setup(Level.Trial)
+    public void setUp(PhotoState photo) {
+        image = new BufferedImage(photo.width, photo.height, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, photo.width, photo.height, photo.pixels, 0, photo.width);
+        writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        writer.dispose();
+    }
+
+    @Benchmark
+    public String jpegBase64() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        }
+        return Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+}
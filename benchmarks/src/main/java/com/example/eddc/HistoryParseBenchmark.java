@@ -0,0 +1,70 @@
+package com.example.eddc;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a whole history of 10 to 10,000 records, from LocalHistoryStore rows, which back
+ * every page the list shows, and from database snapshot values, as pulled by the history sync.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HistoryParseBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int entries;
+
+    private String[] ids;
+    private String[] json;
+    private List<Map<String, Object>> nodes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        nodes = SyntheticInputs.history(entries, new Random(42));
+        ids = new String[entries];
+        json = new String[entries];
+        for (int i = 0; i < entries; i++) {
+            ids[i] = SyntheticInputs.historyId(i);
+            json[i] = new JSONObject(nodes.get(i)).toString();
+        }
+    }
+
+    @Benchmark
+    public long fromJson() throws JSONException {
+        long classSum = 0;
+        for (int i = 0; i < entries; i++) {
+            classSum += DetectionRecord.fromJson(ids[i], json[i]).classIndex;
+        }
+        return classSum;
+    }
+
+    @Benchmark
+    public long fromMap() {
+        long classSum = 0;
+        for (int i = 0; i < entries; i++) {
+            classSum += DetectionRecord.fromMap(ids[i], nodes.get(i)).classIndex;
+        }
+        return classSum;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.eddc;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/** A synthetic photo of 1 to 12 megapixels, shared by the image stage benchmarks. */
+@State(Scope.Benchmark)
+public class PhotoState {
+
+    @Param({"1", "4", "12"})
+    public double megapixels;
+
+    int width;
+    int height;
+    int[] pixels;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        width = SyntheticInputs.photoWidth(megapixels);
+        height = SyntheticInputs.photoHeight(megapixels);
+        pixels = SyntheticInputs.photo(width, height, new Random(42));
+    }
+}
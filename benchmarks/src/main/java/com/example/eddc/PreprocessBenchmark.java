@@ -0,0 +1,41 @@
+package com.example.eddc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resize and normalization, which TensorPreprocessor fuses into one pass over the output
+ * tensor, plus the PredictionCache key hashed over the same pixels before inference.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PreprocessBenchmark {
+
+    private final TensorPreprocessor preprocessor = new TensorPreprocessor(ModelRegistry.INPUT_SIZE);
+    private final FloatBuffer tensor = FloatBuffer.allocate(preprocessor.getTensorLength());
+
+    @Benchmark
+    public float resizeAndNormalize(PhotoState photo) {
+        preprocessor.preprocess(photo.pixels, photo.width, photo.height, tensor, 0);
+        return tensor.get(tensor.capacity() - 1);
+    }
+
+    @Benchmark
+    public String cacheKey(PhotoState photo) {
+        return PredictionCache.key("v1", photo.pixels, photo.width, photo.height);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.eddc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProbabilityCodec per stored distribution: encode, decode and the top 3 classes, over the
+ * mix of shapes ProbabilityCodecCheck verifies. Scores are per vector.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProbabilityCodecBenchmark {
+
+    private static final int VECTORS = 1000;
+
+    private final int classes = ModelRegistry.CLASS_NAMES.length;
+    private float[][] inputs;
+    private byte[] encoded;
+    private byte[][] encodedVectors;
+    private float[] decoded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        inputs = ProbabilityCodecCheck.inputs(VECTORS, classes);
+        encoded = new byte[VECTORS * classes];
+        encodedVectors = new byte[VECTORS][];
+        for (int i = 0; i < VECTORS; i++) {
+            ProbabilityCodec.encode(inputs[i], encoded, i * classes);
+            encodedVectors[i] = ProbabilityCodec.encode(inputs[i]);
+        }
+        decoded = new float[classes];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VECTORS)
+    public byte[] encode() {
+        for (int i = 0; i < VECTORS; i++) {
+            ProbabilityCodec.encode(inputs[i], encoded, i * classes);
+        }
+        return encoded;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VECTORS)
+    public void decode(Blackhole blackhole) {
+        for (int i = 0; i < VECTORS; i++) {
+            ProbabilityCodec.decode(encoded, i * classes, classes, decoded);
+            blackhole.consume(decoded);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VECTORS)
+    public void topK(Blackhole blackhole) {
+        for (int i = 0; i < VECTORS; i++) {
+            blackhole.consume(ProbabilityCodec.topK(encodedVectors[i], 3));
+        }
+    }
+}
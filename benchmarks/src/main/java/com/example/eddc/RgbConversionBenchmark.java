@@ -0,0 +1,57 @@
+package com.example.eddc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RGB conversion: RgbConverter.convert's 32-row strips against the per-pixel column-major loop
+ * it replaced, both from RgbConverterCheck, plus forceOpaque alone. Over int[], so the JNI
+ * copies of getPixels and setPixels, and the two JNI calls per pixel the old loop paid on a
+ * device, are not included.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RgbConversionBenchmark {
+
+    private int[] target;
+    private int[] scratch;
+
+    @Setup(Level.Trial)
+    public void setUp(PhotoState photo) {
+        target = new int[photo.pixels.length];
+        scratch = new int[photo.width * RgbConverterCheck.STRIP_ROWS];
+    }
+
+    @Benchmark
+    public int strips(PhotoState photo) {
+        RgbConverterCheck.stripCopy(photo.pixels, target, scratch, photo.width, photo.height);
+        return target[target.length - 1];
+    }
+
+    @Benchmark
+    public int perPixelColumnMajor(PhotoState photo) {
+        RgbConverterCheck.perPixelColumnMajor(photo.pixels, target, photo.width, photo.height);
+        return target[target.length - 1];
+    }
+
+    @Benchmark
+    public int forceOpaque(PhotoState photo) {
+        RgbConverter.forceOpaque(photo.pixels, 0, photo.pixels.length);
+        return photo.pixels[photo.pixels.length - 1];
+    }
+}
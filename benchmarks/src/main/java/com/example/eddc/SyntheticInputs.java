@@ -0,0 +1,107 @@
+package com.example.eddc;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Synthetic inputs shared by the benchmarks: camera-like photos and history nodes as the
+ * realtime database returns them.
+ */
+final class SyntheticInputs {
+
+    // Share of schema 1 records in a synthetic history, as in accounts that predate schema 2
+    private static final double LEGACY_SHARE = 0.1;
+
+    private SyntheticInputs() {
+    }
+
+    /** Width of a 4:3 photo, the usual camera aspect ratio, of about the given megapixels. */
+    static int photoWidth(double megapixels) {
+        return (int) Math.round(Math.sqrt(megapixels * 1e6 * 4 / 3));
+    }
+
+    static int photoHeight(double megapixels) {
+        return photoWidth(megapixels) * 3 / 4;
+    }
+
+    /** Smooth gradients plus sensor-like noise, so JPEG sizes are close to real photos. */
+    static int[] photo(int width, int height, Random random) {
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int noise = random.nextInt(16) - 8;
+                int r = clamp(255 * x / width + noise);
+                int g = clamp(255 * y / height + noise);
+                int b = clamp(128 + (x + y) % 64 + noise);
+                pixels[y * width + x] = r << 16 | g << 8 | b; // Alpha left clear, as in decoded PNGs
+            }
+        }
+        return pixels;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+    /** Push-key style ids, chronological like the real ones. */
+    static String historyId(int index) {
+        return String.format(Locale.US, "-Nrec%015d", index);
+    }
+
+    /**
+     * Database node values for a history: current-schema records with blob references and the
+     * full distribution, mixed with schema 1 records that need the legacy conversion.
+     */
+    static List<Map<String, Object>> history(int entries, Random random) {
+        int numClasses = ModelRegistry.CLASS_NAMES.length;
+        SimpleDateFormat legacyFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+        long timestamp = 1_700_000_000_000L;
+        float[] logits = new float[numClasses];
+
+        List<Map<String, Object>> nodes = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            timestamp += 60_000 + random.nextInt(86_400_000);
+            int classIndex = random.nextInt(numClasses);
+            float confidence = 40 + random.nextFloat() * 60;
+
+            Map<String, Object> values;
+            if (random.nextDouble() < LEGACY_SHARE) {
+                values = new HashMap<>();
+                values.put("disease", ModelRegistry.CLASS_NAMES[classIndex]);
+                values.put("confidence", (double) confidence);
+                values.put("timestamp", legacyFormat.format(timestamp));
+            } else {
+                DetectionRecord record = new DetectionRecord();
+                record.classIndex = classIndex;
+                record.confidenceBp = DetectionRecord.toConfidenceBp(confidence);
+                record.timestampMillis = timestamp;
+                record.imageRef = "images/" + i + ".jpg";
+                record.imageBytes = 150_000 + random.nextInt(100_000);
+                record.imageWidth = 1600;
+                record.imageHeight = 1200;
+                record.previewRef = "previews/" + i + ".webp";
+                record.previewBytes = 20_000 + random.nextInt(10_000);
+                record.thumbRef = "thumbs/" + i + ".webp";
+                record.thumbBytes = 3_000 + random.nextInt(2_000);
+                for (int c = 0; c < numClasses; c++) {
+                    logits[c] = (float) (random.nextGaussian() * 3);
+                }
+                record.setProbabilities(ClassScores.softmax(logits));
+                values = record.toMap();
+            }
+            // The database hands back every integer as a Long
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                if (entry.getValue() instanceof Integer) {
+                    entry.setValue(((Integer) entry.getValue()).longValue());
+                }
+            }
+            nodes.add(values);
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.eddc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** The cost of one InferenceTracer span as the pipeline records it, with tracing off and on. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TracerBenchmark {
+
+    @Param({"false", "true"})
+    public boolean enabled;
+
+    private final InferenceTracer tracer = new InferenceTracer();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tracer.setEnabled(enabled);
+    }
+
+    @Benchmark
+    public long span() {
+        long begin = tracer.begin();
+        tracer.end(InferenceScheduler.Stage.FORWARD, begin);
+        return begin;
+    }
+}
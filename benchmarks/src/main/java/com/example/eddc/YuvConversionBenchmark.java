@@ -0,0 +1,72 @@
+package com.example.eddc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live camera frames to the model tensor, rotated 90 degrees as on a phone held upright:
+ * YuvTensorConverter in one pass against the Bitmap route it replaced, both from
+ * YuvConverterCheck. The Bitmap route also writes and reads back an ARGB copy of the frame
+ * and of the cropped square, traffic the converter avoids.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class YuvConversionBenchmark {
+
+    private static final int ROTATION = 90;
+
+    // CameraX analysis resolutions
+    @Param({"640x480", "1280x720"})
+    public String resolution;
+
+    private YuvConverterCheck.Frame frame;
+    private YuvTensorConverter converter;
+    private TensorPreprocessor preprocessor;
+    private FloatBuffer tensor;
+    private int[] argb;
+    private int[] square;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] size = resolution.split("x");
+        int width = Integer.parseInt(size[0]);
+        int height = Integer.parseInt(size[1]);
+        frame = new YuvConverterCheck.Frame(width, height, new Random(7));
+        converter = new YuvTensorConverter(ModelRegistry.INPUT_SIZE);
+        preprocessor = new TensorPreprocessor(ModelRegistry.INPUT_SIZE);
+        tensor = FloatBuffer.allocate(converter.getTensorLength());
+        int side = Math.min(width, height);
+        argb = new int[width * height];
+        square = new int[side * side];
+    }
+
+    @Benchmark
+    public float direct() {
+        frame.convert(converter, ROTATION, tensor);
+        return tensor.get(tensor.capacity() - 1);
+    }
+
+    @Benchmark
+    public float bitmapRoute() {
+        YuvConverterCheck.bitmapRoute(frame, ROTATION, argb, square, preprocessor, tensor);
+        return tensor.get(tensor.capacity() - 1);
+    }
+}
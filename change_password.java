@@ -8,25 +8,22 @@ import android.widget.Button;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 
 import com.google.android.material.textfield.TextInputEditText;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.Query;
-import com.google.firebase.database.ValueEventListener;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class change_password extends AppCompatActivity {
 
     TextInputEditText phoneInput, newPasswordInput, confirmPasswordInput;
     Button changePasswordButton;
-    DatabaseReference databaseReference;
+    private final ExecutorService authExecutor = Executors.newSingleThreadExecutor();
 
     @SuppressLint("MissingInflatedId")
     @Override
@@ -40,10 +37,6 @@ public class change_password extends AppCompatActivity {
             return insets;
         });
 
-        // Initialize Firebase Database
-        databaseReference = FirebaseDatabase.getInstance("https://eye-disease-detection-6a200-default-rtdb.asia-southeast1.firebasedatabase.app").getReference("users");
-
-
         // Initialize UI elements
         phoneInput = findViewById(R.id.phone_number);
         newPasswordInput = findViewById(R.id.new_password);
@@ -89,52 +82,49 @@ public class change_password extends AppCompatActivity {
                     return;
                 }
 
-                // Update password in database
-                updatePasswordInDatabase(phoneNumber, newPassword);
+                // Update password in database; hashing and the database wait run off the main thread
+                authExecutor.execute(() -> updatePasswordInDatabase(phoneNumber, newPassword));
             }
         });
     }
 
+    // Runs on authExecutor
     private void updatePasswordInDatabase(String phoneNumber, String newPassword) {
-        // Directly reference the user node using phone number as key
-        DatabaseReference userRef = databaseReference.child(phoneNumber);
-
-        userRef.addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                if (dataSnapshot.exists()) {
-                    // User exists, update password
-                    userRef.child("password").setValue(newPassword)
-                            .addOnSuccessListener(aVoid -> {
-                                Toast.makeText(change_password.this,
-                                        "Password updated successfully",
-                                        Toast.LENGTH_SHORT).show();
-                                // Clear fields
-                                phoneInput.setText("");
-                                newPasswordInput.setText("");
-                                confirmPasswordInput.setText("");
-                                Intent i = new Intent(change_password.this, MainActivity.class);
-                                startActivity(i);
-                            })
-                            .addOnFailureListener(e -> {
-                                Toast.makeText(change_password.this,
-                                        "Failed to update password: " + e.getMessage(),
-                                        Toast.LENGTH_SHORT).show();
-                            });
-
-                } else {
-                    Toast.makeText(change_password.this,
-                            "No user found with this phone number",
-                            Toast.LENGTH_SHORT).show();
-                }
-            }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError databaseError) {
+        AccountRepository accounts = new AccountRepository(
+                FirebaseRealtimeStore.getInstance(), PasswordHasher.forDevice(getApplicationContext()));
+        boolean updated;
+        try {
+            // Stores a salted hash; only the password field is read, never the rest of the user's data
+            updated = accounts.changePassword(phoneNumber, newPassword);
+        } catch (IOException e) {
+            runOnUiThread(() -> Toast.makeText(change_password.this,
+                    "Failed to update password: " + e.getMessage(),
+                    Toast.LENGTH_SHORT).show());
+            return;
+        }
+
+        runOnUiThread(() -> {
+            if (!updated) {
                 Toast.makeText(change_password.this,
-                        "Database error: " + databaseError.getMessage(),
+                        "No user found with this phone number",
                         Toast.LENGTH_SHORT).show();
+                return;
             }
+            Toast.makeText(change_password.this,
+                    "Password updated successfully",
+                    Toast.LENGTH_SHORT).show();
+            // Clear fields
+            phoneInput.setText("");
+            newPasswordInput.setText("");
+            confirmPasswordInput.setText("");
+            Intent i = new Intent(change_password.this, MainActivity.class);
+            startActivity(i);
         });
     }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        authExecutor.shutdown();
+    }
 }
@@ -0,0 +1,74 @@
+import os
+import struct
+import sys
+
+import torch
+
+# Writes the CNN weights in the format read by JavaCnnBackend.readWeights:
+# little-endian int magic, int version, int count, then per tensor
+# int name length, UTF-8 name, int rank, int[rank] shape, float32 data.
+MAGIC = 0x57434445
+VERSION = 1
+
+# Reference logits for TorchScriptParityCheck: little-endian int magic, int version,
+# int input size, int sample count, int class count, then float32 logits per sample.
+REFERENCE_MAGIC = 0x52434445
+REFERENCE_SAMPLES = 4
+INPUT_SIZE = 256
+
+
+def load_state_dict(path):
+    if path.endswith(".pt"):
+        return torch.jit.load(path, map_location="cpu").state_dict()
+    return torch.load(path, map_location="cpu")
+
+
+def export(state_dict, output_path):
+    # num_batches_tracked is a training counter and is not needed for inference
+    tensors = [(name, t.detach().float().contiguous())
+               for name, t in state_dict.items()
+               if not name.endswith("num_batches_tracked")]
+
+    with open(output_path, "wb") as f:
+        f.write(struct.pack("<iii", MAGIC, VERSION, len(tensors)))
+        for name, t in tensors:
+            encoded = name.encode("utf-8")
+            f.write(struct.pack("<i", len(encoded)))
+            f.write(encoded)
+            f.write(struct.pack("<i", t.dim()))
+            f.write(struct.pack("<%di" % t.dim(), *t.shape))
+            f.write(t.numpy().astype("<f4").tobytes())
+
+    print(f"Exported {len(tensors)} tensors to {output_path}")
+
+
+def reference_input(sample, size=INPUT_SIZE):
+    # Integer pattern scaled to about the normalized input range; TorchScriptParityCheck
+    # builds the same float32 values from the same formula
+    length = 3 * size * size
+    k = (torch.arange(length, dtype=torch.int64) * 7919 + sample * 104729 + 13) % 2001
+    return ((k - 1000).double() / 400.0).float().reshape(1, 3, size, size)
+
+
+def export_reference(module, output_path, samples=REFERENCE_SAMPLES):
+    module.eval()
+    with torch.no_grad():
+        logits = [module(reference_input(s)).reshape(-1) for s in range(samples)]
+
+    with open(output_path, "wb") as f:
+        f.write(struct.pack("<iiiii", REFERENCE_MAGIC, VERSION, INPUT_SIZE, samples, logits[0].numel()))
+        for row in logits:
+            f.write(row.numpy().astype("<f4").tobytes())
+
+    print(f"Wrote TorchScript logits for {samples} inputs to {output_path}")
+
+
+if __name__ == '__main__':
+    source = sys.argv[1] if len(sys.argv) > 1 else "eye_disease_classifier.pth"
+    target = sys.argv[2] if len(sys.argv) > 2 else "eye_disease_classifier.weights"
+    reference = sys.argv[3] if len(sys.argv) > 3 else os.path.splitext(target)[0] + ".reference"
+    export(load_state_dict(source), target)
+    if source.endswith(".pt"):
+        export_reference(torch.jit.load(source, map_location="cpu"), reference)
+    else:
+        print("No reference logits written: pass the TorchScript .pt file to get them", file=sys.stderr)
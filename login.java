@@ -2,12 +2,10 @@ package com.example.eddc;
 
 import android.content.Intent;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.Color;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.provider.MediaStore;
-import android.util.Base64;
 import android.util.Log;
 import android.view.View;
 import android.widget.Button;
@@ -24,74 +22,111 @@ import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-
-import org.pytorch.IValue;
-import org.pytorch.Module;
-import org.pytorch.Tensor;
-import org.pytorch.torchvision.TensorImageUtils;
-
-import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.HashMap;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Locale;
-import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 public class login extends AppCompatActivity {
 
     private static final String TAG = "EyeDiseaseDetector";
-    private static final String MODEL_FILE = "eye_disease_classifier.pt";
-    private static final int INPUT_SIZE = 256;
+    private static final int INPUT_SIZE = ModelRegistry.INPUT_SIZE;
+
+    // Re-analyzing an image that is already in the history does not add another record
+    private static final boolean SUPPRESS_DUPLICATE_HISTORY = true;
+
+    // Blob path prefix for detection images: detections/{userId}/{detectionId}[_preview|_thumb]
+    private static final String IMAGE_BLOB_DIR = "detections";
+
+    // Snapshot written by a long-press on the trace overlay
+    private static final String TRACE_FILE = "inference_trace.json";
 
     private ImageView imageView;
     private Button btnPickImage, btnPredict, btnViewHistory;
-    private TextView txtResult;
+    private TextView txtResult, txtTraceOverlay;
     private ProgressBar progressBar;
     private Bitmap selectedImage;
-    private Module model;
 
     // All 15 class names (must match training order exactly)
-    private final String[] classNames = {"Blepharitis", "Bulging_Eyes", "Cataract", "Chalazion",
-            "Conjunctivitis", "Crossed_Eyes", "Diabetic_Retinopathy",
-            "Eyelid_Drooping", "Glaucoma", "Jaundice", "Keratitis",
-            "Normal", "Pterygium", "Stye", "Uveitis"};
+    private final String[] classNames = ModelRegistry.CLASS_NAMES;
 
     // Firebase variables
-    private DatabaseReference databaseRef;
+    private RemoteHistory remoteHistory;
     private String currentUserId;
-
-    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private LocalHistoryStore localHistory;
+    private HistorySyncEngine syncEngine;
+    private final ThumbnailGenerator thumbnailGenerator = new ThumbnailGenerator(
+            ThumbnailGenerator.DEFAULT_THUMBNAIL_SIZE, ThumbnailGenerator.DEFAULT_PREVIEW_SIZE);
+
+    // Shared I/O and compute pools; the keys let newer work cancel superseded work
+    private final InferenceScheduler scheduler = InferenceScheduler.getInstance();
+    private final InferenceTracer tracer = InferenceTracer.getInstance();
+    private final Object decodeKey = new Object();
+    private final Object predictKey = new Object();
+    private final RgbConverter rgbConverter = new RgbConverter();
+
+    // Per compute thread, so hashing an image for the cache key allocates nothing once warm
+    private final ThreadLocal<int[]> keyPixelBuffers = ThreadLocal.withInitial(() -> new int[0]);
+    private ImageIngestor imageIngestor;
+    private ModelRegistry modelRegistry;
+    private PredictionCache predictionCache;
+
+    // Last backend picked by a long-press; main thread only
+    private ModelRegistry.Backend requestedBackend;
+
+    // Time-to-first-prediction bookkeeping for this screen
+    private long screenStartMillis;
+    private boolean modelColdStart;
+    private boolean firstPredictionRecorded;
 
     private final ActivityResultLauncher<Intent> imagePickerLauncher =
             registerForActivityResult(new ActivityResultContracts.StartActivityForResult(), result -> {
                 if (result.getResultCode() == RESULT_OK && result.getData() != null) {
                     Uri selectedImageUri = result.getData().getData();
-                    try {
-                        // Load image with proper configuration
-                        BitmapFactory.Options options = new BitmapFactory.Options();
-                        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
-                        InputStream imageStream = getContentResolver().openInputStream(selectedImageUri);
-                        selectedImage = BitmapFactory.decodeStream(imageStream, null, options);
-
-                        // Ensure image is in RGB format
-                        selectedImage = convertToRGB(selectedImage);
-
-                        imageView.setImageBitmap(selectedImage);
-                        btnPredict.setEnabled(true);
-                        txtResult.setText(R.string.image_selected_message);
-                    } catch (IOException e) {
-                        Log.e(TAG, "Failed to load image", e);
-                        Toast.makeText(this, R.string.failed_to_load_image, Toast.LENGTH_SHORT).show();
-                    }
+                    progressBar.setVisibility(View.VISIBLE);
+                    btnPredict.setEnabled(false);
+
+                    // A new image supersedes any prediction still running for the previous one
+                    scheduler.cancel(predictKey);
+
+                    // Decode off the main thread, downsampled to the model input size
+                    submitOrReject(() -> scheduler.submitIo(decodeKey, InferenceScheduler.Stage.DECODE, () -> {
+                        try {
+                            Bitmap decoded = imageIngestor.decode(selectedImageUri);
+
+                            // Ensure image is in RGB format
+                            long span = tracer.begin();
+                            Bitmap rgbImage = convertToRGB(decoded);
+                            tracer.end(InferenceScheduler.Stage.RGB_CONVERT, span);
+                            if (Thread.currentThread().isInterrupted()) {
+                                return null; // Superseded by a newer pick
+                            }
+
+                            runOnUiThread(() -> {
+                                selectedImage = rgbImage;
+                                progressBar.setVisibility(View.GONE);
+                                imageView.setImageBitmap(selectedImage);
+                                btnPredict.setEnabled(true);
+                                txtResult.setText(R.string.image_selected_message);
+                            });
+                        } catch (IOException e) {
+                            Log.e(TAG, "Failed to load image", e);
+                            runOnUiThread(() -> {
+                                progressBar.setVisibility(View.GONE);
+                                btnPredict.setEnabled(selectedImage != null);
+                                Toast.makeText(login.this, R.string.failed_to_load_image, Toast.LENGTH_SHORT).show();
+                            });
+                        }
+                        return null;
+                    }));
                 }
             });
 
@@ -112,15 +147,35 @@ public class login extends AppCompatActivity {
             currentUserId = "9548343029"; // Default test user id
         }
 
-        databaseRef = FirebaseDatabase.getInstance("https://eye-disease-detection-6a200-default-rtdb.asia-southeast1.firebasedatabase.app")
-                .getReference();
+        remoteHistory = new RemoteHistory(FirebaseRealtimeStore.getInstance());
+
+        screenStartMillis = SystemClock.elapsedRealtime();
+        modelRegistry = ModelRegistry.getInstance(this);
+        predictionCache = PredictionCache.getInstance(this);
+        localHistory = LocalHistoryStore.getInstance(this);
+        syncEngine = HistorySyncEngine.getInstance(this);
+        imageIngestor = new ImageIngestor(getContentResolver(), INPUT_SIZE);
 
         imageView = findViewById(R.id.imageView);
         btnPickImage = findViewById(R.id.btnPickImage);
         btnPredict = findViewById(R.id.btnPredict);
         txtResult = findViewById(R.id.txtResult);
+        txtTraceOverlay = findViewById(R.id.txtTraceOverlay);
         progressBar = findViewById(R.id.progressBar);
 
+        // Long-press the result to show stage latencies, long-press those to export them
+        if (isDebugLoggingEnabled()) {
+            tracer.setEnabled(true);
+        }
+        txtResult.setOnLongClickListener(v -> {
+            toggleTraceOverlay();
+            return true;
+        });
+        txtTraceOverlay.setOnLongClickListener(v -> {
+            exportTrace();
+            return true;
+        });
+
         btnViewHistory = findViewById(R.id.btnViewHistory);
         if (btnViewHistory != null) {
             btnViewHistory.setOnClickListener(v -> viewHistory());
@@ -132,6 +187,15 @@ public class login extends AppCompatActivity {
 
         btnPickImage.setOnClickListener(v -> openImagePicker());
 
+        // Developer toggle: long-press to cycle TorchScript, Java and INT8; the choice is kept
+        btnPickImage.setOnLongClickListener(v -> {
+            cycleBackend();
+            return true;
+        });
+
+        Button btnLiveCamera = findViewById(R.id.btnLiveCamera);
+        btnLiveCamera.setOnClickListener(v -> startActivity(new Intent(this, LiveScreening.class)));
+
         btnPredict.setOnClickListener(v -> {
             if (selectedImage != null) {
                 predictDisease();
@@ -144,59 +208,42 @@ public class login extends AppCompatActivity {
     }
 
     private Bitmap convertToRGB(Bitmap bitmap) {
-        // Create a new RGB bitmap
-        Bitmap rgbBitmap = Bitmap.createBitmap(bitmap.getWidth(), bitmap.getHeight(), Bitmap.Config.ARGB_8888);
-        // Copy pixels ensuring RGB format
-        for (int x = 0; x < bitmap.getWidth(); x++) {
-            for (int y = 0; y < bitmap.getHeight(); y++) {
-                int pixel = bitmap.getPixel(x, y);
-                rgbBitmap.setPixel(x, y, Color.rgb(
-                        Color.red(pixel),
-                        Color.green(pixel),
-                        Color.blue(pixel)
-                ));
-            }
-        }
-        return rgbBitmap;
+        return rgbConverter.convert(bitmap);
     }
 
     private void loadModel() {
+        if (modelRegistry.isLoaded()) {
+            onModelReady(false);
+            return;
+        }
+
         progressBar.setVisibility(View.VISIBLE);
         txtResult.setText(R.string.loading_model);
 
-        executorService.execute(() -> {
+        submitOrReject(() -> scheduler.submitIo(null, InferenceScheduler.Stage.MODEL_LOAD, () -> {
             try {
-                // Force delete old cached model if it exists
-                File cachedModel = new File(getFilesDir(), MODEL_FILE);
-                if (cachedModel.exists()) {
-                    boolean deleted = cachedModel.delete();
-                    Log.d(TAG, "Deleted old cached model: " + deleted);
-                }
-
-                // Copy fresh model from assets into internal storage
-                String modelPath = assetFilePath(MODEL_FILE);
-                if (modelPath != null) {
-                    File modelFile = new File(modelPath);
-                    Log.d(TAG, "Model file size: " + modelFile.length() + " bytes");
-
-                    // Load model
-                    model = Module.load(modelPath);
-                    runOnUiThread(() -> {
-                        progressBar.setVisibility(View.GONE);
-                        txtResult.setText(R.string.model_loaded);
-                        Toast.makeText(login.this, R.string.model_ready, Toast.LENGTH_SHORT).show();
-                    });
-
-                    // Run test prediction to confirm model output size
-                    testModelWithRandomInput();
-                } else {
-                    runOnUiThread(() -> {
-                        progressBar.setVisibility(View.GONE);
-                        txtResult.setText(R.string.model_not_found);
-                        Toast.makeText(login.this, R.string.model_not_found, Toast.LENGTH_LONG).show();
-                    });
-                }
-            } catch (IOException e) {
+                // Extracts and loads only on the first call in this process
+                boolean coldStart = modelRegistry.ensureLoaded();
+                runOnUiThread(() -> {
+                    progressBar.setVisibility(View.GONE);
+                    txtResult.setText(R.string.model_loaded);
+                    Toast.makeText(login.this, R.string.model_ready, Toast.LENGTH_SHORT).show();
+                    onModelReady(coldStart);
+                });
+            } catch (FileNotFoundException e) {
+                Log.e(TAG, "Model asset missing", e);
+                // No Java weights to fall back on: show why the preferred backend failed, if it was tried
+                Throwable[] earlier = e.getSuppressed();
+                String message = earlier.length > 0
+                        ? getString(R.string.model_load_error, String.valueOf(earlier[0].getMessage()))
+                        : getString(R.string.model_not_found);
+                runOnUiThread(() -> {
+                    progressBar.setVisibility(View.GONE);
+                    txtResult.setText(message);
+                    Toast.makeText(login.this, message, Toast.LENGTH_LONG).show();
+                });
+            } catch (IOException | RuntimeException e) {
+                // RuntimeException: the model loaded but its warm-up forward pass failed
                 Log.e(TAG, "Error loading model", e);
                 runOnUiThread(() -> {
                     progressBar.setVisibility(View.GONE);
@@ -208,35 +255,56 @@ public class login extends AppCompatActivity {
                     ).show();
                 });
             }
-        });
+            return null;
+        }));
     }
 
-    private void testModelWithRandomInput() {
-        try {
-            // Create random input tensor
-            float[] randomInput = new float[3 * INPUT_SIZE * INPUT_SIZE];
-            for (int i = 0; i < randomInput.length; i++) {
-                randomInput[i] = (float) Math.random();
-            }
-
-            Tensor inputTensor = Tensor.fromBlob(randomInput, new long[]{1, 3, INPUT_SIZE, INPUT_SIZE});
-            Tensor outputTensor = model.forward(IValue.from(inputTensor)).toTensor();
+    private void cycleBackend() {
+        ModelRegistry.Backend[] backends = ModelRegistry.Backend.values();
+        // Cycle from the last request, so a backend that falls back does not trap the cycle
+        ModelRegistry.Backend current = requestedBackend != null ? requestedBackend
+                : modelRegistry.isLoaded() ? modelRegistry.getActiveBackend()
+                : modelRegistry.getPreferredBackend();
+        ModelRegistry.Backend next = backends[(current.ordinal() + 1) % backends.length];
+        requestedBackend = next;
 
-            float[] outputs = outputTensor.getDataAsFloatArray();
-
-            // Log all outputs
-            Log.d(TAG, "Test output length: " + outputs.length);
-            for (int i = 0; i < outputs.length; i++) {
-                Log.d(TAG, String.format(Locale.US, "Class %d (%.20s): %.6f", i,
-                        classNames.length > i ? classNames[i] : "Unknown", outputs[i]));
+        progressBar.setVisibility(View.VISIBLE);
+        btnPredict.setEnabled(false);
+        submitOrReject(() -> scheduler.submitIo(null, InferenceScheduler.Stage.MODEL_LOAD, () -> {
+            try {
+                // Waits for a load still in progress, and loads the model if there is none yet
+                boolean coldStart = !modelRegistry.isLoaded();
+                modelRegistry.switchBackend(next);
+                ModelRegistry.Backend selected = modelRegistry.getActiveBackend();
+                runOnUiThread(() -> {
+                    progressBar.setVisibility(View.GONE);
+                    btnPredict.setEnabled(selectedImage != null);
+                    if (coldStart) {
+                        txtResult.setText(R.string.model_loaded);
+                    }
+                    Toast.makeText(login.this, getString(R.string.backend_selected, selected),
+                            Toast.LENGTH_SHORT).show();
+                    onModelReady(coldStart);
+                });
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Error switching backend", e);
+                runOnUiThread(() -> {
+                    progressBar.setVisibility(View.GONE);
+                    btnPredict.setEnabled(modelRegistry.isLoaded() && selectedImage != null);
+                    Toast.makeText(login.this, getString(R.string.model_load_error, e.getMessage()),
+                            Toast.LENGTH_LONG).show();
+                });
             }
+            return null;
+        }));
+    }
 
-            if (outputs.length != classNames.length) {
-                Log.w(TAG, "⚠️ Model output length mismatch: Expected " + classNames.length + ", got " + outputs.length);
-            }
+    private void onModelReady(boolean coldStart) {
+        modelColdStart = coldStart;
 
-        } catch (Exception e) {
-            Log.e(TAG, "Model test failed", e);
+        int outputLength = modelRegistry.getOutputLength();
+        if (outputLength != classNames.length) {
+            Log.w(TAG, "⚠️ Model output length mismatch: Expected " + classNames.length + ", got " + outputLength);
         }
     }
 
@@ -246,7 +314,7 @@ public class login extends AppCompatActivity {
     }
 
     private void predictDisease() {
-        if (model == null) {
+        if (!modelRegistry.isLoaded()) {
             Toast.makeText(this, R.string.model_not_ready, Toast.LENGTH_SHORT).show();
             return;
         }
@@ -255,68 +323,90 @@ public class login extends AppCompatActivity {
         btnPredict.setEnabled(false);
         txtResult.setText(R.string.analyzing_image);
 
-        executorService.execute(() -> {
+        Bitmap image = selectedImage;
+        submitOrReject(() -> scheduler.submitCompute(predictKey, InferenceScheduler.Stage.PREDICT, () -> {
             try {
-                // Ensure image is in RGB format
-                Bitmap rgbBitmap = convertToRGB(selectedImage);
-
-                // Resize image to expected model input size
-                Bitmap resizedBitmap = Bitmap.createScaledBitmap(rgbBitmap, INPUT_SIZE, INPUT_SIZE, true);
-
-                // Normalization constants (must match training)
-                final float[] MEAN = {0.485f, 0.456f, 0.406f};
-                final float[] STD = {0.229f, 0.224f, 0.225f};
-
-                // Create input tensor from bitmap
-                Tensor inputTensor = TensorImageUtils.bitmapToFloat32Tensor(
-                        resizedBitmap, MEAN, STD
-                );
-
-                // Log input tensor statistics for debugging
-                float[] inputData = inputTensor.getDataAsFloatArray();
-                logTensorStats("Input Tensor", inputData);
-
-                // Run forward pass
-                Tensor outputTensor = model.forward(IValue.from(inputTensor)).toTensor();
-
-                // Get raw scores
-                float[] scores = outputTensor.getDataAsFloatArray();
+                // Identical pixels under the same model give identical probabilities
+                long span = tracer.begin();
+                String cacheKey = cacheKey(image);
+                PredictionCache.Entry cached = predictionCache.get(cacheKey);
+                tracer.end(InferenceScheduler.Stage.CACHE_LOOKUP, span);
+
+                float[] probabilities;
+                if (cached != null) {
+                    probabilities = cached.getProbabilities();
+                    Log.d(TAG, "Prediction cache hit");
+                } else {
+                    // Preprocessing runs here on the compute pool; the forward pass runs in the
+                    // shared batch predictor, which coalesces requests that arrive close together
+                    float[] scores = predict(image);
+
+                    // Log raw outputs for debugging
+                    if (isDebugLoggingEnabled()) {
+                        Log.d(TAG, "Raw output scores:");
+                        for (int i = 0; i < Math.min(scores.length, classNames.length); i++) {
+                            Log.d(TAG, String.format(Locale.US, "%s: %.6f", classNames[i], scores[i]));
+                        }
+                    }
 
-                // Log raw outputs for debugging
-                Log.d(TAG, "Raw output scores:");
-                for (int i = 0; i < Math.min(scores.length, classNames.length); i++) {
-                    Log.d(TAG, String.format(Locale.US, "%s: %.6f", classNames[i], scores[i]));
+                    // Apply softmax to get probabilities
+                    span = tracer.begin();
+                    probabilities = ClassScores.softmax(scores);
+                    tracer.end(InferenceScheduler.Stage.SOFTMAX, span);
+                    predictionCache.put(cacheKey, probabilities);
                 }
 
-                // Apply softmax to get probabilities
-                float[] probabilities = softmax(scores);
-
                 // Find the class with highest probability
-                int maxIndex = 0;
-                float maxProbability = probabilities[0];
-                for (int i = 1; i < Math.min(probabilities.length, classNames.length); i++) {
-                    if (probabilities[i] > maxProbability) {
-                        maxProbability = probabilities[i];
-                        maxIndex = i;
-                    }
-                }
-
-                String predictedClass = classNames[maxIndex];
-                float confidence = maxProbability * 100;
+                int predictedIndex = ClassScores.argMax(probabilities, classNames.length);
+                String predictedClass = classNames[predictedIndex];
+                float confidence = probabilities[predictedIndex] * 100;
 
                 // MODIFIED: Simplified result string - only showing prediction without confidence
                 String result = "Detected: " + predictedClass;
 
-                // Save prediction to Firebase (still include confidence in database)
-                saveDetectionToFirebase(predictedClass, confidence, selectedImage);
+                // Save prediction to history (still include confidence in the record); the
+                // claim is only remembered once the record is stored for this user
+                String userId = currentUserId;
+                if (SUPPRESS_DUPLICATE_HISTORY && !predictionCache.beginHistoryWrite(cacheKey, userId)) {
+                    Log.d(TAG, "Skipping duplicate history entry");
+                } else {
+                    try {
+                        scheduler.submitIo(null, InferenceScheduler.Stage.PERSIST, () -> {
+                            boolean stored = false;
+                            try {
+                                stored = saveDetection(predictedIndex, confidence, probabilities, image);
+                            } finally {
+                                predictionCache.endHistoryWrite(cacheKey, userId, stored);
+                            }
+                            return null;
+                        });
+                    } catch (RejectedExecutionException e) {
+                        predictionCache.endHistoryWrite(cacheKey, userId, false);
+                        tracer.count(InferenceTracer.Counter.DROPPED_HISTORY_WRITE);
+                        Log.w(TAG, "Dropped history write, I/O queue full", e);
+                    }
+                }
 
                 // Update UI with results
                 runOnUiThread(() -> {
+                    if (!firstPredictionRecorded) {
+                        firstPredictionRecorded = true;
+                        modelRegistry.recordTimeToFirstPrediction(modelColdStart,
+                                SystemClock.elapsedRealtime() - screenStartMillis);
+                    }
                     progressBar.setVisibility(View.GONE);
                     btnPredict.setEnabled(true);
                     txtResult.setText(result);
+                    updateTraceOverlay();
                 });
 
+                if (isDebugLoggingEnabled()) {
+                    Log.d(TAG, "Stage latencies:\n" + tracer.formatStats());
+                }
+
+            } catch (InterruptedException | CancellationException e) {
+                // Superseded by a newer image; the new selection owns the UI now
+                Log.d(TAG, "Prediction cancelled");
             } catch (Exception e) {
                 Log.e(TAG, "Prediction error", e);
                 runOnUiThread(() -> {
@@ -326,95 +416,124 @@ public class login extends AppCompatActivity {
                     Toast.makeText(login.this, R.string.prediction_failed, Toast.LENGTH_SHORT).show();
                 });
             }
-        });
+            return null;
+        }));
     }
 
-    private void logTensorStats(String name, float[] tensorData) {
-        float min = Float.MAX_VALUE;
-        float max = Float.MIN_VALUE;
-        float sum = 0;
-
-        for (float value : tensorData) {
-            if (value < min) min = value;
-            if (value > max) max = value;
-            sum += value;
+    private float[] predict(Bitmap image) throws InterruptedException, ExecutionException {
+        Future<float[]> scores = modelRegistry.getPredictor().submit(image);
+        try {
+            return scores.get();
+        } catch (InterruptedException e) {
+            // Drop the request from the batch queue if it has not run yet
+            scores.cancel(false);
+            throw e;
         }
-
-        float mean = sum / tensorData.length;
-        Log.d(TAG, String.format(Locale.US,
-                "%s stats - Min: %.6f, Max: %.6f, Mean: %.6f",
-                name, min, max, mean));
     }
 
-    private void saveDetectionToFirebase(String diseaseName, float confidence, Bitmap image) {
-        String detectionId = databaseRef.child("users").child(currentUserId).child("history").push().getKey();
-
-        if (detectionId == null) {
-            Log.e(TAG, "Failed to create detection entry key");
-            return;
+    private String cacheKey(Bitmap image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = keyPixelBuffers.get();
+        if (pixels.length < width * height) {
+            pixels = new int[width * height];
+            keyPixelBuffers.set(pixels);
         }
+        image.getPixels(pixels, 0, width, 0, 0, width, height);
+        return PredictionCache.key(modelRegistry.getModelVersion(), pixels, width, height);
+    }
 
-        String base64Image = bitmapToBase64(image);
-
-        Map<String, Object> historyEntry = new HashMap<>();
-        historyEntry.put("disease", diseaseName);
-        historyEntry.put("confidence", confidence); // Still save confidence to database
-        historyEntry.put("image", base64Image);
-        historyEntry.put("timestamp", new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault())
-                .format(new Date()));
+    // The scheduler rejects work when its bounded queues are full
+    private void submitOrReject(Runnable submission) {
+        try {
+            submission.run();
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Scheduler busy", e);
+            progressBar.setVisibility(View.GONE);
+            btnPredict.setEnabled(selectedImage != null);
+            Toast.makeText(this, R.string.busy_try_again, Toast.LENGTH_SHORT).show();
+        }
+    }
 
-        databaseRef.child("users").child(currentUserId).child("history").child(detectionId)
-                .setValue(historyEntry)
-                .addOnSuccessListener(aVoid -> Log.d(TAG, "History saved successfully"))
-                .addOnFailureListener(e -> Log.e(TAG, "Error saving history", e));
+    // Enable with: adb shell setprop log.tag.EyeDiseaseDetector DEBUG
+    private boolean isDebugLoggingEnabled() {
+        return Log.isLoggable(TAG, Log.DEBUG);
     }
 
-    private String bitmapToBase64(Bitmap bitmap) {
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.JPEG, 70, byteArrayOutputStream);
-        byte[] byteArray = byteArrayOutputStream.toByteArray();
-        return Base64.encodeToString(byteArray, Base64.DEFAULT);
+    private void toggleTraceOverlay() {
+        boolean show = txtTraceOverlay.getVisibility() != View.VISIBLE;
+        // Tracing stays on while debug logging asks for it, even with the overlay hidden
+        tracer.setEnabled(show || isDebugLoggingEnabled());
+        txtTraceOverlay.setVisibility(show ? View.VISIBLE : View.GONE);
+        updateTraceOverlay();
     }
 
-    private String assetFilePath(String assetName) throws IOException {
-        File file = new File(getFilesDir(), assetName);
-        if (file.exists() && file.length() > 0) {
-            return file.getAbsolutePath();
+    private void updateTraceOverlay() {
+        if (txtTraceOverlay.getVisibility() == View.VISIBLE) {
+            txtTraceOverlay.setText(tracer.formatStats());
         }
+    }
 
-        try (InputStream is = getAssets().open(assetName);
-             OutputStream os = new FileOutputStream(file)) {
-            byte[] buffer = new byte[15 * 1024];
-            int read;
-            while ((read = is.read(buffer)) != -1) {
-                os.write(buffer, 0, read);
-            }
-            os.flush();
-            return file.getAbsolutePath();
+    // Pull with: adb pull /sdcard/Android/data/com.example.eddc/files/inference_trace.json
+    private void exportTrace() {
+        File dir = getExternalFilesDir(null);
+        File file = new File(dir != null ? dir : getFilesDir(), TRACE_FILE);
+        String json = tracer.toJson();
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            out.write(json);
+            Log.i(TAG, "Inference trace: " + json);
+            Toast.makeText(this, getString(R.string.trace_saved, file), Toast.LENGTH_LONG).show();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to export inference trace", e);
+            Toast.makeText(this, R.string.trace_export_failed, Toast.LENGTH_SHORT).show();
         }
     }
 
-    private float[] softmax(float[] scores) {
-        // Find max score for numerical stability
-        float max = Float.NEGATIVE_INFINITY;
-        for (float score : scores) {
-            if (score > max) max = score;
-        }
+    // Stores the detection on the device first; HistorySyncEngine uploads it when online.
+    // Returns whether the record reached the local store.
+    private boolean saveDetection(int classIndex, float confidence, float[] probabilities, Bitmap image) {
+        // Push keys are generated on the client, so this works offline too
+        String detectionId = remoteHistory.newId(currentUserId);
 
-        // Compute exp and sum
-        float sum = 0f;
-        float[] expScores = new float[scores.length];
-        for (int i = 0; i < scores.length; i++) {
-            expScores[i] = (float) Math.exp(scores[i] - max);
-            sum += expScores[i];
+        if (detectionId == null) {
+            Log.e(TAG, "Failed to create detection entry key");
+            return false;
         }
 
-        // Normalize to get probabilities
-        for (int i = 0; i < expScores.length; i++) {
-            expScores[i] /= sum;
+        DetectionRecord record = new DetectionRecord();
+        record.id = detectionId;
+        record.classIndex = classIndex;
+        record.confidenceBp = DetectionRecord.toConfidenceBp(confidence); // Still save confidence to database
+        record.timestampMillis = System.currentTimeMillis();
+        record.setProbabilities(probabilities); // Lets history show differentials without re-running the model
+
+        // The record only keeps references, byte sizes and dimensions of the renditions
+        ThumbnailGenerator.Renditions renditions = thumbnailGenerator.generate(image);
+        String imagePath = IMAGE_BLOB_DIR + "/" + currentUserId + "/" + detectionId;
+        ImageBlobStore localBlobs = syncEngine.getLocalBlobs();
+        try {
+            localBlobs.put(imagePath + ".jpg", renditions.original);
+            localBlobs.put(imagePath + "_preview.webp", renditions.preview);
+            localBlobs.put(imagePath + "_thumb.webp", renditions.thumbnail);
+            record.imageRef = imagePath + ".jpg";
+            record.imageBytes = renditions.original.length;
+            record.imageWidth = renditions.width;
+            record.imageHeight = renditions.height;
+            record.previewRef = imagePath + "_preview.webp";
+            record.previewBytes = renditions.preview.length;
+            record.thumbRef = imagePath + "_thumb.webp";
+            record.thumbBytes = renditions.thumbnail.length;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to store detection image, saving record without it", e);
         }
 
-        return expScores;
+        if (!localHistory.insertPending(currentUserId, record)) {
+            Log.e(TAG, "Failed to save history locally");
+            return false;
+        }
+        Log.d(TAG, "History saved locally");
+        syncEngine.requestSync(currentUserId);
+        return true;
     }
 
     private void viewHistory() {
@@ -426,6 +545,7 @@ public class login extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        executorService.shutdown();
+        scheduler.cancel(decodeKey);
+        scheduler.cancel(predictKey);
     }
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+import json
+import os
+import sys
+import urllib.parse
+import urllib.request
+
+# Moves every user's history from users/{phone}/history to history/{phone} through the
+# Realtime Database REST API, so users/{phone} only keeps credentials. Each page is moved
+# with one multi-path PATCH, which the server applies atomically; rerunning is safe.
+#
+# Usage: FIREBASE_AUTH=<database secret or OAuth token> python migrate_users.py [database-url]
+DATABASE_URL = "https://eye-disease-detection-6a200-default-rtdb.asia-southeast1.firebasedatabase.app"
+PAGE_SIZE = 50
+
+
+def request(base, path, method="GET", params=None, body=None):
+    query = dict(params or {})
+    auth = os.environ.get("FIREBASE_AUTH")
+    if auth:
+        query["auth"] = auth
+    url = f"{base}/{path}.json"
+    if query:
+        url += "?" + urllib.parse.urlencode(query)
+    data = json.dumps(body).encode("utf-8") if body is not None else None
+    req = urllib.request.Request(url, data=data, method=method,
+                                 headers={"Content-Type": "application/json"})
+    with urllib.request.urlopen(req) as response:
+        return json.loads(response.read().decode("utf-8"))
+
+
+def migrate_user(base, phone):
+    moved = 0
+    while True:
+        # Moved records are deleted, so the first page is always the next one
+        page = request(base, f"users/{phone}/history",
+                       params={"orderBy": '"$key"', "limitToFirst": PAGE_SIZE})
+        if not page:
+            return moved
+        updates = {}
+        for key, record in page.items():
+            updates[f"history/{phone}/{key}"] = record
+            updates[f"users/{phone}/history/{key}"] = None
+        request(base, "", method="PATCH", body=updates)
+        moved += len(page)
+
+
+def main():
+    base = sys.argv[1] if len(sys.argv) > 1 else DATABASE_URL
+    # shallow=true lists the phone keys without downloading anything under them
+    users = request(base, "users", params={"shallow": "true"}) or {}
+    total = 0
+    for phone in sorted(users):
+        moved = migrate_user(base, phone)
+        if moved:
+            print(f"{phone}: moved {moved} records")
+        total += moved
+    print(f"Migrated {total} records for {len(users)} users")
+
+
+if __name__ == '__main__':
+    main()